@@ -0,0 +1,31 @@
+#!/bin/sh
+# Batch scoring with an AppCDS (application class-data sharing) archive.
+#
+# The first run compiles the sources into build/scoring.jar and records every Weka and
+# project class the launcher loads into build/scoring.jsa (-XX:ArchiveClassesAtExit,
+# JDK 13+). Later runs map that archive (-XX:SharedArchiveFile) instead of parsing and
+# verifying the classes again. Both are rebuilt when a source file, source directory or
+# library jar is newer than the jar.
+#
+# Usage: scripts/score.sh <model file or NaiveBayes|J48|RandomForest> [input arff] [warm-up records]
+set -e
+cd "$(dirname "$0")/.."
+
+JAR=build/scoring.jar
+ARCHIVE=build/scoring.jsa
+# CDS only archives classes from jar files, so the project classes are jarred too
+CLASSPATH="$JAR:lib/weka.jar"
+
+if [ ! -f "$JAR" ] || [ -n "$(find src lib -newer "$JAR" \( -type d -o -name '*.java' -o -name '*.jar' \) | head -n 1)" ]; then
+    # The archive describes the old jar, so it is recorded again on this run
+    rm -rf build/classes "$ARCHIVE"
+    mkdir -p build/classes
+    javac -encoding UTF-8 -cp "lib/*" -d build/classes $(find src -name '*.java')
+    jar cf "$JAR" -C build/classes .
+fi
+
+if [ -f "$ARCHIVE" ]; then
+    exec java -XX:SharedArchiveFile="$ARCHIVE" -cp "$CLASSPATH" model.ScoringLauncher "$@"
+fi
+echo "Recording class-data sharing archive $ARCHIVE"
+exec java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$CLASSPATH" model.ScoringLauncher "$@"
@@ -42,27 +42,27 @@ public class Main {
 
 
     public static void RandomForest() {
-        (new RandomForestClassifier()).exec(dataImporter.trainSource, dataImporter.testSource);
+        (new RandomForestClassifier()).exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     public static void RandomForestTuning() {
-        (new RandomForestTuning()).exec(dataImporter.trainSource, dataImporter.testSource);
+        (new RandomForestTuning()).exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     public static void OneR() {
-        (new OneRClassifier()).exec(dataImporter.trainSource, dataImporter.testSource);
+        (new OneRClassifier()).exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     public static void IBk() {
-        (new IBkClassifier()).exec(dataImporter.trainSource, dataImporter.testSource);
+        (new IBkClassifier()).exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     public static void NB() {
-        (new NaiveBayesClassifier()).exec(dataImporter.trainSource, dataImporter.testSource);
+        (new NaiveBayesClassifier()).exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     public static void J48() {
-        (new J48Classifier()).exec(dataImporter.trainSource, dataImporter.testSource);
+        (new J48Classifier()).exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     public static void J48Tuning() {
@@ -70,11 +70,11 @@ public class Main {
     }
 
     public static void SVM() {
-        (new SVMClassifier()).exec(dataImporter.trainSource, dataImporter.testSource);
+        (new SVMClassifier()).exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     public static void LR() {
-        (new LogisticRegressionClassifier()).exec(dataImporter.trainSource, dataImporter.testSource);
+        (new LogisticRegressionClassifier()).exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
 }
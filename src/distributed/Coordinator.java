@@ -0,0 +1,312 @@
+package distributed;
+
+import preprocessing.dataImporter;
+import weka.classifiers.evaluation.AggregateableEvaluation;
+import weka.classifiers.evaluation.Evaluation;
+import weka.core.Instances;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads fold x parameter evaluations over worker JVMs, each with its own heap and GC.
+ *
+ * The coordinator listens on a TCP port, on loopback unless another bind address is
+ * given. Every {@link Worker} that connects must present the shared token (see
+ * {@link Protocol}), then receives the dataset once and pulls {@link EvaluationTask}s
+ * one at a time. A task that fails, whose worker disconnects, or whose result does not
+ * arrive within {@code taskTimeoutMillis} goes back on the queue up to
+ * {@code maxRetries} times. Workers can be started locally with
+ * {@link #startLocalWorkers(int)} or by hand on other hosts with
+ * {@code DISTRIBUTED_TOKEN=<token> java -cp ... distributed.Worker <coordinator host> <port>}.
+ */
+public class Coordinator implements Closeable {
+    private final Instances dataset;
+    private final ServerSocket server;
+    private final String token;
+    private final List<Process> localWorkers = new ArrayList<>();
+
+    private int maxRetries = 2;
+    private long idleTimeoutMillis = 60_000;
+    private int taskTimeoutMillis = 30 * 60_000;
+    private int handshakeTimeoutMillis = 10_000;
+
+    /**
+     * Listen on loopback only, with a random token.
+     */
+    public Coordinator(Instances dataset, int port) throws IOException {
+        this(dataset, InetAddress.getLoopbackAddress(), port, Protocol.newToken());
+    }
+
+    /**
+     * @param bindAddress address to listen on, e.g. a LAN interface for remote workers
+     * @param token       shared secret every worker must send before anything else
+     */
+    public Coordinator(Instances dataset, InetAddress bindAddress, int port, String token) throws IOException {
+        this.dataset = dataset;
+        this.token = token;
+        this.server = new ServerSocket(port, 50, bindAddress);
+        server.setSoTimeout(500);
+    }
+
+    /**
+     * @return the token workers must present, to pass on to workers started by hand
+     */
+    public String getToken() {
+        return token;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Launch worker JVMs on this machine with the coordinator's own java binary and
+     * classpath; they connect back over localhost.
+     *
+     * @param count number of worker processes
+     */
+    public void startLocalWorkers(int count) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classpath = System.getProperty("java.class.path");
+        for (int i = 0; i < count; i++) {
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", classpath,
+                    Worker.class.getName(), server.getInetAddress().getHostAddress(), "" + getPort());
+            // Passed in the environment rather than on the command line, where ps shows it
+            builder.environment().put(Protocol.TOKEN_ENV, token);
+            builder.inheritIO();
+            localWorkers.add(builder.start());
+        }
+    }
+
+    /**
+     * Run all tasks on whichever workers are connected (or connect while running).
+     *
+     * @param tasks the tasks to run
+     * @return the Evaluation of every task, by task id
+     * @throws IllegalStateException if a task keeps failing or no worker is left
+     */
+    public Map<Integer, Evaluation> run(List<EvaluationTask> tasks) throws Exception {
+        BlockingQueue<EvaluationTask> queue = new LinkedBlockingQueue<>(tasks);
+        Map<Integer, Evaluation> results = new ConcurrentHashMap<>();
+        Map<Integer, Integer> attempts = new ConcurrentHashMap<>();
+        Map<Integer, String> failures = new ConcurrentHashMap<>();
+        CountDownLatch remaining = new CountDownLatch(tasks.size());
+        AtomicInteger liveWorkers = new AtomicInteger();
+
+        long idleSince = System.currentTimeMillis();
+        while (remaining.getCount() > 0) {
+            try {
+                Socket socket = server.accept();
+                liveWorkers.incrementAndGet();
+                Thread session = new Thread(() -> {
+                    try {
+                        serve(socket, queue, results, attempts, failures, remaining);
+                    } finally {
+                        liveWorkers.decrementAndGet();
+                    }
+                }, "worker-" + socket.getRemoteSocketAddress());
+                session.setDaemon(true);
+                session.start();
+            } catch (SocketTimeoutException e) {
+                // no new worker, check progress below
+            }
+
+            if (liveWorkers.get() > 0) {
+                idleSince = System.currentTimeMillis();
+            } else if (System.currentTimeMillis() - idleSince > idleTimeoutMillis) {
+                throw new IllegalStateException("No worker connected for " + idleTimeoutMillis / 1000
+                        + " s with " + remaining.getCount() + " tasks left");
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Tasks failed after " + maxRetries + " retries: " + failures);
+        }
+        return results;
+    }
+
+    private void serve(Socket socket, BlockingQueue<EvaluationTask> queue, Map<Integer, Evaluation> results,
+                       Map<Integer, Integer> attempts, Map<Integer, String> failures, CountDownLatch remaining) {
+        EvaluationTask task = null;
+        try (Socket connection = socket) {
+            connection.setSoTimeout(handshakeTimeoutMillis);
+            if (!Protocol.checkToken(connection, token)) {
+                System.out.println("Rejected worker " + connection.getRemoteSocketAddress() + ": wrong token");
+                return;
+            }
+            ObjectOutputStream out = new ObjectOutputStream(connection.getOutputStream());
+            out.flush();
+            ObjectInputStream in = Protocol.objectInput(connection.getInputStream());
+            // A worker that does not answer within the timeout loses its task
+            connection.setSoTimeout(taskTimeoutMillis);
+
+            out.writeObject(dataset);
+            out.reset();
+            out.flush();
+
+            while (remaining.getCount() > 0) {
+                task = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    continue;
+                }
+                out.writeObject(task);
+                out.reset();
+                out.flush();
+
+                TaskResult result = (TaskResult) in.readObject();
+                if (result.error != null) {
+                    retry(task, result.error, queue, attempts, failures, remaining);
+                } else {
+                    results.put(task.id, result.evaluation);
+                    remaining.countDown();
+                }
+                task = null;
+            }
+            out.writeObject(null);
+            out.flush();
+        } catch (Exception e) {
+            // The worker is gone or timed out; its in-flight task goes back on the queue
+            if (task != null) {
+                retry(task, e.toString(), queue, attempts, failures, remaining);
+            }
+        }
+    }
+
+    private void retry(EvaluationTask task, String error, BlockingQueue<EvaluationTask> queue,
+                       Map<Integer, Integer> attempts, Map<Integer, String> failures, CountDownLatch remaining) {
+        int attempt = attempts.merge(task.id, 1, Integer::sum);
+        if (attempt <= maxRetries) {
+            System.out.println("Retrying " + task + " after: " + error);
+            queue.add(task);
+        } else {
+            failures.put(task.id, error);
+            remaining.countDown();
+        }
+    }
+
+    /**
+     * Merge the per-fold Evaluations of each candidate.
+     *
+     * @param tasks   the tasks that were run
+     * @param results the output of {@link #run(List)}
+     * @return one aggregated Evaluation per candidate index
+     */
+    public static Map<Integer, Evaluation> aggregate(List<EvaluationTask> tasks, Map<Integer, Evaluation> results)
+            throws Exception {
+        Map<Integer, AggregateableEvaluation> merged = new HashMap<>();
+        for (EvaluationTask task : tasks) {
+            Evaluation eval = results.get(task.id);
+            AggregateableEvaluation total = merged.get(task.candidate);
+            if (total == null) {
+                total = new AggregateableEvaluation(eval);
+                merged.put(task.candidate, total);
+            }
+            total.aggregate(eval);
+        }
+        return new HashMap<>(merged);
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @param taskTimeoutMillis how long to wait for a task's result before the worker is
+     *                          dropped and the task is retried elsewhere
+     */
+    public void setTaskTimeoutMillis(int taskTimeoutMillis) {
+        this.taskTimeoutMillis = taskTimeoutMillis;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Process worker : localWorkers) {
+            worker.destroy();
+        }
+    }
+
+    /**
+     * Distributed J48 tuning on KDDValid: M = 2, 4, 6, 8 x 10 folds on N local workers.
+     *
+     * Usage: distributed.Coordinator [number of local workers] [port] [bind address]
+     *
+     * The token is taken from DISTRIBUTED_TOKEN if set, otherwise a random one is used.
+     */
+    public static void main(String[] args) {
+        int numWorkers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int numFolds = 10;
+
+        try {
+            Instances validDataset = dataImporter.validSource().getDataSet();
+            if (validDataset.classIndex() == -1) {
+                validDataset.setClassIndex(validDataset.numAttributes() - 1);
+            }
+
+            List<String[]> candidates = new ArrayList<>();
+            for (int m = 2; m <= 8; m += 2) {
+                candidates.add(new String[]{"-M", "" + m});
+            }
+            List<EvaluationTask> tasks = new ArrayList<>();
+            for (int c = 0; c < candidates.size(); c++) {
+                for (int fold = 0; fold < numFolds; fold++) {
+                    tasks.add(new EvaluationTask(tasks.size(), c, "weka.classifiers.trees.J48",
+                            candidates.get(c), fold, numFolds, 1));
+                }
+            }
+
+            InetAddress bindAddress = args.length > 2 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+            String token = System.getenv(Protocol.TOKEN_ENV);
+            if (token == null || token.isEmpty()) {
+                token = Protocol.newToken();
+            }
+
+            try (Coordinator coordinator = new Coordinator(validDataset, bindAddress, port, token)) {
+                System.out.println("Coordinator listening on " + bindAddress.getHostAddress() + ":" + coordinator.getPort());
+                coordinator.startLocalWorkers(numWorkers);
+
+                long start = System.nanoTime();
+                Map<Integer, Evaluation> evaluations = aggregate(tasks, coordinator.run(tasks));
+                System.out.printf("%d tasks on %d workers in %.1f s%n", tasks.size(), numWorkers,
+                        (System.nanoTime() - start) / 1e9);
+
+                int best = 0;
+                for (int c = 0; c < candidates.size(); c++) {
+                    Evaluation eval = evaluations.get(c);
+                    System.out.println(String.join(" ", candidates.get(c)) + ": Correct % = " + eval.pctCorrect()
+                            + ", AUC = " + eval.areaUnderROC(1));
+                    if (eval.pctCorrect() > evaluations.get(best).pctCorrect()) {
+                        best = c;
+                    }
+                }
+                System.out.println("Best Parameters: " + String.join(" ", candidates.get(best)));
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
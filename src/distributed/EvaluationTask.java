@@ -0,0 +1,36 @@
+package distributed;
+
+import java.io.Serializable;
+
+/**
+ * One unit of work for a {@link Worker}: train a classifier with the given options on
+ * all folds but one and evaluate it on the held-out fold.
+ */
+public class EvaluationTask implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public final int id;
+    public final int candidate;
+    public final String classifierName;
+    public final String[] options;
+    public final int fold;
+    public final int numFolds;
+    public final int seed;
+
+    public EvaluationTask(int id, int candidate, String classifierName, String[] options,
+                          int fold, int numFolds, int seed) {
+        this.id = id;
+        this.candidate = candidate;
+        this.classifierName = classifierName;
+        this.options = options;
+        this.fold = fold;
+        this.numFolds = numFolds;
+        this.seed = seed;
+    }
+
+    @Override
+    public String toString() {
+        return "task " + id + " (" + classifierName + " " + String.join(" ", options)
+                + ", fold " + (fold + 1) + "/" + numFolds + ")";
+    }
+}
@@ -0,0 +1,86 @@
+package distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Connection setup shared by {@link Coordinator} and {@link Worker}.
+ *
+ * A worker first sends the shared token as plain UTF-8, before either side creates an
+ * object stream, and the coordinator drops connections with a wrong token without
+ * deserializing anything. Both sides then read objects only through
+ * {@link #objectInput(InputStream)}, whose filter allows the dataset, tasks, results and
+ * the Weka and java.lang / java.util classes they are made of.
+ *
+ * The token reaches local workers through the {@value #TOKEN_ENV} environment variable;
+ * set the same variable when starting workers by hand.
+ */
+final class Protocol {
+    static final String TOKEN_ENV = "DISTRIBUTED_TOKEN";
+
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=200;java.lang.*;java.util.*;weka.**;"
+                    + "distributed.EvaluationTask;distributed.TaskResult;!*");
+
+    private Protocol() {
+    }
+
+    /**
+     * @return a random 128-bit token in hex
+     */
+    static String newToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder();
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b));
+        }
+        return token.toString();
+    }
+
+    /**
+     * Worker side: send the token and wait for the coordinator to accept it.
+     *
+     * @throws IOException if the coordinator rejects the token
+     */
+    static void sendToken(Socket socket, String token) throws IOException {
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeUTF(token);
+        out.flush();
+        if (!new DataInputStream(socket.getInputStream()).readBoolean()) {
+            throw new IOException("Coordinator rejected the token");
+        }
+    }
+
+    /**
+     * Coordinator side: read the worker's token and answer whether it matches.
+     *
+     * @return true if the worker sent the expected token
+     */
+    static boolean checkToken(Socket socket, String token) throws IOException {
+        String received = new DataInputStream(socket.getInputStream()).readUTF();
+        boolean accepted = MessageDigest.isEqual(received.getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8));
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeBoolean(accepted);
+        out.flush();
+        return accepted;
+    }
+
+    /**
+     * @return an ObjectInputStream that rejects classes outside the allow-list
+     */
+    static ObjectInputStream objectInput(InputStream in) throws IOException {
+        ObjectInputStream objectIn = new ObjectInputStream(in);
+        objectIn.setObjectInputFilter(FILTER);
+        return objectIn;
+    }
+}
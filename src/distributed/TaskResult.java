@@ -0,0 +1,23 @@
+package distributed;
+
+import weka.classifiers.evaluation.Evaluation;
+
+import java.io.Serializable;
+
+/**
+ * What a {@link Worker} sends back for an {@link EvaluationTask}: the fold's Evaluation,
+ * or the error that made the task fail.
+ */
+public class TaskResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public final int taskId;
+    public final Evaluation evaluation;
+    public final String error;
+
+    public TaskResult(int taskId, Evaluation evaluation, String error) {
+        this.taskId = taskId;
+        this.evaluation = evaluation;
+        this.error = error;
+    }
+}
@@ -0,0 +1,85 @@
+package distributed;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.evaluation.Evaluation;
+import weka.core.Instances;
+
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Worker JVM for distributed evaluation. Connects to a {@link Coordinator}, presents the
+ * shared token, receives the dataset once, then runs {@link EvaluationTask}s until the
+ * coordinator sends null.
+ *
+ * Usage: DISTRIBUTED_TOKEN=&lt;token&gt; java -cp out:lib/weka.jar distributed.Worker &lt;coordinator host&gt; &lt;port&gt;
+ */
+public class Worker {
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: distributed.Worker <coordinator host> <port>");
+            System.exit(1);
+        }
+        String token = System.getenv(Protocol.TOKEN_ENV);
+        if (token == null || token.isEmpty()) {
+            System.err.println("Set " + Protocol.TOKEN_ENV + " to the coordinator's token");
+            System.exit(1);
+        }
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            Protocol.sendToken(socket, token);
+            ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+            out.flush();
+            ObjectInputStream in = Protocol.objectInput(socket.getInputStream());
+
+            Instances dataset = (Instances) in.readObject();
+            Map<String, Instances> folds = new HashMap<>();
+
+            EvaluationTask task;
+            while ((task = (EvaluationTask) in.readObject()) != null) {
+                TaskResult result;
+                try {
+                    result = new TaskResult(task.id, run(task, dataset, folds), null);
+                } catch (Exception e) {
+                    result = new TaskResult(task.id, null, e.toString());
+                }
+                out.writeObject(result);
+                out.reset();
+                out.flush();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static Evaluation run(EvaluationTask task, Instances dataset, Map<String, Instances> folds)
+            throws Exception {
+        // Shuffle and stratify once per (seed, folds) so every task sees the same split
+        String key = task.seed + "/" + task.numFolds;
+        Instances prepared = folds.get(key);
+        if (prepared == null) {
+            prepared = new Instances(dataset);
+            prepared.randomize(new Random(task.seed));
+            if (prepared.classAttribute().isNominal()) {
+                prepared.stratify(task.numFolds);
+            }
+            folds.put(key, prepared);
+        }
+
+        Instances train = prepared.trainCV(task.numFolds, task.fold);
+        Instances test = prepared.testCV(task.numFolds, task.fold);
+
+        Classifier classifier = AbstractClassifier.forName(task.classifierName, task.options.clone());
+        classifier.buildClassifier(train);
+
+        Evaluation eval = new Evaluation(train);
+        eval.evaluateModel(classifier, test);
+        return eval;
+    }
+}
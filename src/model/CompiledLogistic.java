@@ -0,0 +1,189 @@
+package model;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.filters.unsupervised.attribute.Normalize;
+
+import java.io.Serializable;
+
+/**
+ * The LogisticRegressionClassifier pipeline (NominalToBinary, RemoveUseless, Normalize,
+ * attribute selection, Logistic) folded into one linear model over the raw record.
+ *
+ * Every input of the fitted Logistic is traced back by name to a raw attribute:
+ * {@code name} is a numeric (or two-valued nominal) raw attribute, {@code name=value} is
+ * a NominalToBinary indicator. Normalize is affine, so its scale folds into the weights
+ * and its offset into the intercept, and each indicator becomes a per-value lookup
+ * table. Scoring is then a handful of multiply-adds and table reads per record.
+ * Raw records must not contain missing values (the NSL-KDD files have none).
+ */
+public class CompiledLogistic implements CompiledScorer, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int numModels;
+    private final double[] intercepts;
+
+    // Numeric raw attributes and their [attribute][model] folded weights
+    private final int[] numericAttributes;
+    private final double[] numericWeights;
+
+    // Nominal raw attributes and the start of their [value][model] block in nominalWeights
+    private final int[] nominalAttributes;
+    private final int[] nominalOffsets;
+    private final double[] nominalWeights;
+
+    private CompiledLogistic(Instances rawHeader, Instances normalizedHeader, Normalize normalize,
+                             Instances modelHeader, VectorizedLogistic logistic) {
+        double[] weights = logistic.getWeights();
+        if (weights == null) {
+            throw new IllegalStateException("Logistic model has no flat weight vector to compile");
+        }
+        numModels = logistic.getIntercepts().length;
+        intercepts = logistic.getIntercepts().clone();
+
+        int numRaw = rawHeader.numAttributes();
+        double[][] linear = new double[numRaw][numModels];
+        double[][][] lookup = new double[numRaw][][];
+
+        double[] min = normalize.getMinArray();
+        double[] max = normalize.getMaxArray();
+        int numPredictors = modelHeader.numAttributes() - 1;
+        int p = 0;
+        for (int a = 0; a < modelHeader.numAttributes(); a++) {
+            if (a == modelHeader.classIndex()) {
+                continue;
+            }
+            String name = modelHeader.attribute(a).name();
+
+            // Normalize: x' = (x - min) / (max - min) * scale + translation, constant columns become 0
+            Attribute normalized = normalizedHeader.attribute(name);
+            if (normalized == null) {
+                throw new IllegalStateException("Attribute " + name + " not found after Normalize");
+            }
+            int n = normalized.index();
+            double slope = 0;
+            double offset = 0;
+            if (!Double.isNaN(min[n]) && max[n] != min[n]) {
+                slope = normalize.getScale() / (max[n] - min[n]);
+                offset = normalize.getTranslation() - min[n] * slope;
+            }
+
+            Attribute raw = rawHeader.attribute(name);
+            int separator = name.indexOf('=');
+            for (int k = 0; k < numModels; k++) {
+                double w = weights[k * numPredictors + p];
+                intercepts[k] += w * offset;
+                if (raw != null) {
+                    linear[raw.index()][k] += w * slope;
+                } else if (separator > 0 && rawHeader.attribute(name.substring(0, separator)) != null) {
+                    Attribute nominal = rawHeader.attribute(name.substring(0, separator));
+                    int value = nominal.indexOfValue(name.substring(separator + 1));
+                    if (value < 0) {
+                        throw new IllegalStateException("Unknown value in indicator " + name);
+                    }
+                    if (lookup[nominal.index()] == null) {
+                        lookup[nominal.index()] = new double[nominal.numValues()][numModels];
+                    }
+                    lookup[nominal.index()][value][k] += w * slope;
+                } else {
+                    throw new IllegalStateException("Cannot trace attribute " + name + " back to the raw data");
+                }
+            }
+            p++;
+        }
+
+        int numNumeric = 0;
+        int numNominal = 0;
+        int tableSize = 0;
+        for (int a = 0; a < numRaw; a++) {
+            if (lookup[a] != null) {
+                numNominal++;
+                tableSize += lookup[a].length * numModels;
+            } else if (a != rawHeader.classIndex() && isNonZero(linear[a])) {
+                numNumeric++;
+            }
+        }
+
+        numericAttributes = new int[numNumeric];
+        numericWeights = new double[numNumeric * numModels];
+        nominalAttributes = new int[numNominal];
+        nominalOffsets = new int[numNominal];
+        nominalWeights = new double[tableSize];
+        int m = 0;
+        int n = 0;
+        int offset = 0;
+        for (int a = 0; a < numRaw; a++) {
+            if (lookup[a] != null) {
+                nominalAttributes[n] = a;
+                nominalOffsets[n++] = offset;
+                for (double[] perValue : lookup[a]) {
+                    System.arraycopy(perValue, 0, nominalWeights, offset, numModels);
+                    offset += numModels;
+                }
+            } else if (a != rawHeader.classIndex() && isNonZero(linear[a])) {
+                numericAttributes[m] = a;
+                System.arraycopy(linear[a], 0, numericWeights, m * numModels, numModels);
+                m++;
+            }
+        }
+    }
+
+    /**
+     * Fold the fitted filter chain and the Logistic parameters into one scorer.
+     *
+     * @param rawHeader        header of the raw records (before NominalToBinary)
+     * @param normalizedHeader header right after Normalize
+     * @param normalize        the fitted Normalize filter
+     * @param modelHeader      header of the data the Logistic model was trained on
+     * @param logistic         the trained model
+     * @return the compiled scorer
+     */
+    public static CompiledLogistic compile(Instances rawHeader, Instances normalizedHeader, Normalize normalize,
+                                           Instances modelHeader, VectorizedLogistic logistic) {
+        return new CompiledLogistic(rawHeader, normalizedHeader, normalize, modelHeader, logistic);
+    }
+
+    private static boolean isNonZero(double[] values) {
+        for (double value : values) {
+            if (value != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void score(double[] values, double[] distribution) {
+        for (int k = 0; k < numModels; k++) {
+            distribution[k] = intercepts[k];
+        }
+        for (int m = 0; m < numericAttributes.length; m++) {
+            double value = values[numericAttributes[m]];
+            int base = m * numModels;
+            for (int k = 0; k < numModels; k++) {
+                distribution[k] += numericWeights[base + k] * value;
+            }
+        }
+        for (int n = 0; n < nominalAttributes.length; n++) {
+            int base = nominalOffsets[n] + (int) values[nominalAttributes[n]] * numModels;
+            for (int k = 0; k < numModels; k++) {
+                distribution[k] += nominalWeights[base + k];
+            }
+        }
+        // Logistic's last class is the reference class with score 0
+        distribution[numModels] = 0;
+
+        double max = 0;
+        for (int k = 0; k < numModels; k++) {
+            max = Math.max(max, distribution[k]);
+        }
+        double sum = 0;
+        for (int k = 0; k <= numModels; k++) {
+            distribution[k] = Math.exp(distribution[k] - max);
+            sum += distribution[k];
+        }
+        for (int k = 0; k <= numModels; k++) {
+            distribution[k] /= sum;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package model;
+
+import weka.classifiers.bayes.NaiveBayes;
+import weka.core.Instances;
+import weka.core.Statistics;
+import weka.estimators.DiscreteEstimator;
+import weka.estimators.Estimator;
+import weka.estimators.NormalEstimator;
+
+import java.io.Serializable;
+
+/**
+ * NaiveBayes exported to flat arrays: log class priors, a per-attribute log-likelihood
+ * lookup for nominal attributes and per-class Gaussian parameters for numeric ones.
+ *
+ * Weka's NormalEstimator does not evaluate the density; it integrates it over the
+ * attribute's precision bin with two erf evaluations. For a bin of h = precision / stdDev
+ * at z standard deviations from the mean, the log of that integral expands to
+ * <pre>
+ *   log(h / sqrt(2 pi)) - h^2/24 + h^4/1440 - (1/2 - h^2/24 + h^4/720) z^2 - h^4/2880 z^4
+ * </pre>
+ * up to terms in (z h)^6, so each attribute and class gets three precomputed
+ * coefficients. The expansion is used while h &lt;= {@value #DENSITY_MAX_BIN_WIDTH},
+ * (z h)^2 &lt;= {@value #DENSITY_MAX_ZH_SQUARED} and |z| &lt;= {@value #DENSITY_MAX_Z}, where
+ * it stays within 1e-4 of the exact log integral. Wider bins and the far tails, where
+ * Weka's erf difference rounds towards zero, still use the integral so the result
+ * follows Weka there. Probabilities are accumulated
+ * in log space, which replaces NaiveBayes' 1e75 rescaling, and are clamped at 1e-75 like
+ * NaiveBayes does. Only the default estimators (no kernel density, no discretization) can
+ * be exported.
+ */
+public class CompiledNaiveBayes implements CompiledScorer, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final double LOG_FLOOR = Math.log(1e-75);
+    private static final double DENSITY_MAX_BIN_WIDTH = 0.5;
+    private static final double DENSITY_MAX_ZH_SQUARED = 2;
+    private static final double DENSITY_MAX_Z = 6;
+
+    private final int numClasses;
+    private final double[] logPriors;
+
+    // Nominal attributes: raw index, and start of its [value][class] block in nominalLogLikelihoods
+    private final int[] nominalAttributes;
+    private final int[] nominalOffsets;
+    private final double[] nominalLogLikelihoods;
+
+    // Numeric attributes: raw index, and [attribute][class] Gaussian parameters
+    private final int[] numericAttributes;
+    private final double[] means;
+    private final double[] inverseStdDevs;
+    private final double[] precisions;
+    // Log-integral expansion in z^2: usable while z^2 <= densityLimits (-1 when the bin is too wide)
+    private final double[] densityOffsets;
+    private final double[] densitySlopes;
+    private final double[] densityCurvatures;
+    private final double[] densityLimits;
+
+    private CompiledNaiveBayes(NaiveBayes nb, Instances header) {
+        numClasses = header.numClasses();
+        Estimator[][] estimators = nb.getConditionalEstimators();
+        Estimator classEstimator = nb.getClassEstimator();
+
+        logPriors = new double[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            logPriors[c] = Math.log(classEstimator.getProbability(c));
+        }
+
+        int numNominal = 0;
+        int numNumeric = 0;
+        int tableSize = 0;
+        for (int a = 0; a < header.numAttributes(); a++) {
+            if (a == header.classIndex()) {
+                continue;
+            }
+            if (header.attribute(a).isNominal()) {
+                numNominal++;
+                tableSize += header.attribute(a).numValues() * numClasses;
+            } else {
+                numNumeric++;
+            }
+        }
+
+        nominalAttributes = new int[numNominal];
+        nominalOffsets = new int[numNominal];
+        nominalLogLikelihoods = new double[tableSize];
+        numericAttributes = new int[numNumeric];
+        means = new double[numNumeric * numClasses];
+        inverseStdDevs = new double[numNumeric * numClasses];
+        precisions = new double[numNumeric * numClasses];
+        densityOffsets = new double[numNumeric * numClasses];
+        densitySlopes = new double[numNumeric * numClasses];
+        densityCurvatures = new double[numNumeric * numClasses];
+        densityLimits = new double[numNumeric * numClasses];
+
+        int n = 0;
+        int m = 0;
+        int offset = 0;
+        for (int a = 0; a < header.numAttributes(); a++) {
+            if (a == header.classIndex()) {
+                continue;
+            }
+            if (header.attribute(a).isNominal()) {
+                nominalAttributes[n] = a;
+                nominalOffsets[n] = offset;
+                for (int v = 0; v < header.attribute(a).numValues(); v++) {
+                    for (int c = 0; c < numClasses; c++) {
+                        DiscreteEstimator estimator = (DiscreteEstimator) require(estimators[a][c], DiscreteEstimator.class);
+                        nominalLogLikelihoods[offset++] = Math.max(LOG_FLOOR, Math.log(estimator.getProbability(v)));
+                    }
+                }
+                n++;
+            } else {
+                numericAttributes[m] = a;
+                for (int c = 0; c < numClasses; c++) {
+                    NormalEstimator estimator = (NormalEstimator) require(estimators[a][c], NormalEstimator.class);
+                    int i = m * numClasses + c;
+                    means[i] = estimator.getMean();
+                    inverseStdDevs[i] = 1.0 / estimator.getStdDev();
+                    precisions[i] = estimator.getPrecision();
+                    double binWidth = precisions[i] * inverseStdDevs[i];
+                    if (binWidth <= DENSITY_MAX_BIN_WIDTH) {
+                        double h2 = binWidth * binWidth;
+                        double h4 = h2 * h2;
+                        densityOffsets[i] = Math.log(binWidth / Math.sqrt(2 * Math.PI)) - h2 / 24 + h4 / 1440;
+                        densitySlopes[i] = -0.5 + h2 / 24 - h4 / 720;
+                        densityCurvatures[i] = -h4 / 2880;
+                        densityLimits[i] = Math.min(DENSITY_MAX_Z * DENSITY_MAX_Z, DENSITY_MAX_ZH_SQUARED / h2);
+                    } else {
+                        densityLimits[i] = -1;
+                    }
+                }
+                m++;
+            }
+        }
+    }
+
+    /**
+     * Export a trained NaiveBayes model.
+     *
+     * @param nb     the trained model
+     * @param header the header of the data it was trained on (the raw record layout)
+     * @return the compiled scorer
+     */
+    public static CompiledNaiveBayes compile(NaiveBayes nb, Instances header) {
+        return new CompiledNaiveBayes(nb, header);
+    }
+
+    private static Estimator require(Estimator estimator, Class<? extends Estimator> type) {
+        if (!type.isInstance(estimator)) {
+            throw new IllegalArgumentException("Cannot compile NaiveBayes estimator "
+                    + estimator.getClass().getSimpleName() + ", expected " + type.getSimpleName());
+        }
+        return estimator;
+    }
+
+    @Override
+    public void score(double[] values, double[] distribution) {
+        System.arraycopy(logPriors, 0, distribution, 0, numClasses);
+
+        for (int n = 0; n < nominalAttributes.length; n++) {
+            double value = values[nominalAttributes[n]];
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            int base = nominalOffsets[n] + (int) value * numClasses;
+            for (int c = 0; c < numClasses; c++) {
+                distribution[c] += nominalLogLikelihoods[base + c];
+            }
+        }
+
+        for (int m = 0; m < numericAttributes.length; m++) {
+            double value = values[numericAttributes[m]];
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            int base = m * numClasses;
+            for (int c = 0; c < numClasses; c++) {
+                int i = base + c;
+                double precision = precisions[i];
+                double rounded = Math.rint(value / precision) * precision;
+                double centered = rounded - means[i];
+                double z = centered * inverseStdDevs[i];
+                double zSquared = z * z;
+                if (zSquared <= densityLimits[i]) {
+                    double logP = densityOffsets[i] + zSquared * (densitySlopes[i] + densityCurvatures[i] * zSquared);
+                    distribution[c] += Math.max(LOG_FLOOR, logP);
+                    continue;
+                }
+                double zLower = (centered - precision / 2) * inverseStdDevs[i];
+                double zUpper = (centered + precision / 2) * inverseStdDevs[i];
+                double p = Statistics.normalProbability(zUpper) - Statistics.normalProbability(zLower);
+                distribution[c] += p > 1e-75 ? Math.log(p) : LOG_FLOOR;
+            }
+        }
+
+        double max = distribution[0];
+        for (int c = 1; c < numClasses; c++) {
+            max = Math.max(max, distribution[c]);
+        }
+        double sum = 0;
+        for (int c = 0; c < numClasses; c++) {
+            distribution[c] = Math.exp(distribution[c] - max);
+            sum += distribution[c];
+        }
+        for (int c = 0; c < numClasses; c++) {
+            distribution[c] /= sum;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package model;
+
+/**
+ * A fitted model flattened into primitive tables that scores a raw record (attribute
+ * values in the original ARFF order) without allocating. {@link CompiledScorerReport}
+ * checks one against the Weka model it came from.
+ */
+public interface CompiledScorer {
+
+    /**
+     * Write the class distribution for one raw record into {@code distribution}.
+     *
+     * @param values       attribute values in the order of the raw header
+     * @param distribution output buffer with one slot per class
+     */
+    void score(double[] values, double[] distribution);
+}
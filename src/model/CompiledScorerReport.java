@@ -0,0 +1,63 @@
+package model;
+
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+/**
+ * Agreement and throughput report for a {@link CompiledScorer} against its Weka model.
+ */
+public final class CompiledScorerReport {
+
+    private CompiledScorerReport() {
+    }
+
+    /**
+     * Check a compiled scorer against the Weka model it came from and print the largest
+     * probability difference plus the throughput of both on the given rows.
+     *
+     * @param model      the Weka classifier
+     * @param modelInput the rows as the classifier sees them (after its filters)
+     * @param scorer     the compiled scorer
+     * @param rawInput   the same rows, in the same order, before any filter
+     */
+    public static void compare(Classifier model, Instances modelInput, CompiledScorer scorer, Instances rawInput)
+            throws Exception {
+        int numRows = rawInput.numInstances();
+        double[][] rows = new double[numRows][];
+        for (int i = 0; i < numRows; i++) {
+            rows[i] = rawInput.instance(i).toDoubleArray();
+        }
+        double[] distribution = new double[rawInput.numClasses()];
+
+        double[][] expected = new double[numRows][];
+        long start = System.nanoTime();
+        for (int i = 0; i < numRows; i++) {
+            expected[i] = model.distributionForInstance(modelInput.instance(i));
+        }
+        long wekaNanos = System.nanoTime() - start;
+
+        double maxDiff = 0;
+        for (int i = 0; i < numRows; i++) {
+            scorer.score(rows[i], distribution);
+            for (int c = 0; c < distribution.length; c++) {
+                maxDiff = Math.max(maxDiff, Math.abs(expected[i][c] - distribution[c]));
+            }
+        }
+
+        // A few passes so the compiled loop gets JIT-compiled before we time it
+        for (int pass = 0; pass < 3; pass++) {
+            for (int i = 0; i < numRows; i++) {
+                scorer.score(rows[i], distribution);
+            }
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < numRows; i++) {
+            scorer.score(rows[i], distribution);
+        }
+        long compiledNanos = System.nanoTime() - start;
+
+        System.out.println("Compiled scorer max |p - p_weka| = " + maxDiff);
+        System.out.printf("Weka scorer:     %.0f scores/s%n", numRows / (wekaNanos / 1e9));
+        System.out.printf("Compiled scorer: %.0f scores/s%n", numRows / (compiledNanos / 1e9));
+    }
+}
@@ -0,0 +1,87 @@
+package model;
+
+/**
+ * Drift Detection Method (DDM, Gama et al. 2004) over a stream of prediction outcomes.
+ *
+ * Tracks the running error rate p and its standard deviation s = sqrt(p(1-p)/n), and
+ * remembers the point where p + s was lowest. The stream is in the warning zone once
+ * p + s exceeds that minimum by 2 standard deviations and has drifted at 3. Uses O(1)
+ * memory regardless of stream length.
+ *
+ * p is Laplace-smoothed, (errors + 1) / (n + 2): with a near-perfect model the raw rate
+ * is 0 with a standard deviation of 0, and the first mistake would count as a drift.
+ */
+public class DriftDetector {
+    public enum State { STABLE, WARNING, DRIFT }
+
+    private final int minInstances;
+    private final double warningLevel;
+    private final double driftLevel;
+
+    private long count;
+    private long errors;
+    private double errorRate;
+    private double minErrorRate;
+    private double minStdDev;
+
+    public DriftDetector() {
+        this(30, 2.0, 3.0);
+    }
+
+    /**
+     * @param minInstances outcomes to see before any signal is raised
+     * @param warningLevel standard deviations above the minimum for a warning
+     * @param driftLevel   standard deviations above the minimum for a drift
+     */
+    public DriftDetector(int minInstances, double warningLevel, double driftLevel) {
+        this.minInstances = minInstances;
+        this.warningLevel = warningLevel;
+        this.driftLevel = driftLevel;
+        reset();
+    }
+
+    /**
+     * Add one prediction outcome.
+     *
+     * @param error true if the prediction was wrong
+     * @return the detector state after this outcome
+     */
+    public State update(boolean error) {
+        count++;
+        if (error) {
+            errors++;
+        }
+        errorRate = (errors + 1.0) / (count + 2.0);
+        double stdDev = Math.sqrt(errorRate * (1 - errorRate) / count);
+
+        if (count < minInstances) {
+            return State.STABLE;
+        }
+        if (errorRate + stdDev < minErrorRate + minStdDev) {
+            minErrorRate = errorRate;
+            minStdDev = stdDev;
+        }
+        if (errorRate + stdDev > minErrorRate + driftLevel * minStdDev) {
+            return State.DRIFT;
+        }
+        if (errorRate + stdDev > minErrorRate + warningLevel * minStdDev) {
+            return State.WARNING;
+        }
+        return State.STABLE;
+    }
+
+    /**
+     * Forget everything, e.g. after a new model has been swapped in.
+     */
+    public void reset() {
+        count = 0;
+        errors = 0;
+        errorRate = 0;
+        minErrorRate = Double.MAX_VALUE;
+        minStdDev = Double.MAX_VALUE;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+}
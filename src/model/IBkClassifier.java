@@ -3,14 +3,13 @@ package model;
 import model.Command;
 import preprocessing.dataImporter;
 import weka.classifiers.evaluation.Evaluation;
-import weka.classifiers.lazy.IBk;
 import weka.core.Instances;
 import weka.core.converters.ConverterUtils.DataSource;
 
 public class IBkClassifier implements Command {
     public static void main(String[] args) {
         Command cmd = new IBkClassifier();
-        cmd.exec(dataImporter.trainSource, dataImporter.testSource);
+        cmd.exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     @Override
@@ -32,8 +31,8 @@ public class IBkClassifier implements Command {
             }
 
 
-            // Create and train the NaiveBayes classifier
-            IBk ibk = new IBk();
+            // Create and train the IBk classifier (vectorized distance kernel, IBk defaults)
+            VectorizedIBk ibk = new VectorizedIBk();
             ibk.buildClassifier(trainDataset);
             System.out.println("Classifier built successfully");
             System.out.println("IBk params" + String.join(" ", ibk.getOptions()));
@@ -1,6 +1,7 @@
 package model;
 
 import model.Command;
+import preprocessing.CompactDataset;
 import preprocessing.dataImporter;
 import weka.classifiers.evaluation.Evaluation;
 import weka.classifiers.trees.J48;
@@ -10,14 +11,16 @@ import weka.core.converters.ConverterUtils.DataSource;
 public class J48Classifier implements Command {
     public static void main(String[] args) {
         Command cmd = new J48Classifier();
-        cmd.exec(dataImporter.trainSource, dataImporter.testSource);
+        cmd.exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     @Override
     public void exec(DataSource trainSource, DataSource testSource) {
         try {
             // Load dataset
-            Instances trainDataset = trainSource.getDataSet();
+            CompactDataset compactTrain = CompactDataset.load(trainSource);
+            System.out.println(compactTrain);
+            Instances trainDataset = compactTrain.view();
 
             // Load testing dataset
             Instances testDataset = testSource.getDataSet();
@@ -1,10 +1,12 @@
 package model;
 
 import weka.classifiers.evaluation.Evaluation;
-import weka.classifiers.meta.CVParameterSelection;
 import weka.classifiers.trees.J48;
 import weka.core.Instances;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static preprocessing.dataImporter.*;
 
 public class J48Tuning {
@@ -24,32 +26,32 @@ public class J48Tuning {
     public void exec() {
         try {
             // Load datasets
-            Instances trainDataset = trainSource.getDataSet();
-            Instances testDataset = testSource.getDataSet();
-            Instances validDataset = validSource.getDataSet();
+            Instances trainDataset = trainSource().getDataSet();
+            Instances testDataset = testSource().getDataSet();
+            Instances validDataset = validSource().getDataSet();
 
             // Set class index to the last attribute
             setClassIndex(trainDataset);
             setClassIndex(testDataset);
             setClassIndex(validDataset);
 
-            // Hyperparameter tuning
-            CVParameterSelection ps = new CVParameterSelection();
-            ps.setClassifier(new J48());
-            ps.setNumFolds(10); // 10-fold cross-validation
-
-            // Add parameters to be optimized
-            ps.addCVParameter("M 2 8 4");
+            // Hyperparameter tuning: minimum instances per leaf M = 2, 4, 6, 8
+            List<String[]> candidates = new ArrayList<>();
+            for (int m = 2; m <= 8; m += 2) {
+                candidates.add(new String[]{"-M", "" + m});
+            }
 
-            // Perform cross-validation to find the best parameters on the validation dataset
-            ps.buildClassifier(validDataset);
+            // 10-fold cross-validation on growing stratified samples of the validation dataset
+            ProgressiveSamplingTuner tuner = new ProgressiveSamplingTuner();
+            String[] bestOptions = tuner.tune(candidates, validDataset,
+                    ProgressiveSamplingTuner.crossValidation(new J48(), 10, 1));
 
             // Print the best parameters
-            System.out.println("Best Parameters: " + String.join(" ", ps.getBestClassifierOptions()));
+            System.out.println("Best Parameters: " + String.join(" ", bestOptions));
 
-            // Train the Logistic Regression classifier with the best parameters
+            // Train the J48 classifier with the best parameters
             J48 j48 = new J48();
-            j48.setOptions(ps.getBestClassifierOptions());
+            j48.setOptions(bestOptions);
             j48.buildClassifier(trainDataset);
 
             // Evaluate the classifier on the test dataset
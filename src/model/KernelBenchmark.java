@@ -0,0 +1,135 @@
+package model;
+
+import preprocessing.FeatureMatrix;
+import preprocessing.dataImporter;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Random;
+
+/**
+ * Compares the scalar Instance.value(i) loops with the {@link VectorKernels} over a
+ * {@link FeatureMatrix} on KDDTest+: Euclidean distance (IBk) and dot products
+ * (PolyKernel, Logistic). Prints throughput in pairs per second.
+ */
+public class KernelBenchmark {
+    private static final int QUERIES = 200;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        try {
+            Instances testDataset = dataImporter.testSource().getDataSet();
+            if (testDataset.classIndex() == -1) {
+                testDataset.setClassIndex(testDataset.numAttributes() - 1);
+            }
+
+            FeatureMatrix normalized = FeatureMatrix.normalized(testDataset);
+            FeatureMatrix raw = FeatureMatrix.raw(testDataset);
+            int numRows = normalized.numRows();
+            long pairs = (long) QUERIES * numRows;
+            System.out.println("Rows: " + numRows + ", normalized columns: " + normalized.numColumns()
+                    + ", raw columns: " + raw.numColumns());
+
+            double[] min = new double[testDataset.numAttributes()];
+            double[] width = new double[testDataset.numAttributes()];
+            for (int a = 0; a < testDataset.numAttributes(); a++) {
+                if (testDataset.attribute(a).isNumeric()) {
+                    min[a] = testDataset.attributeStats(a).numericStats.min;
+                    width[a] = testDataset.attributeStats(a).numericStats.max - min[a];
+                }
+            }
+
+            Random random = new Random(1);
+            double[] weights = new double[raw.numColumns()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = random.nextGaussian();
+            }
+
+            for (int round = 1; round <= ROUNDS; round++) {
+                System.out.println("Round " + round);
+
+                long start = System.nanoTime();
+                double checksum = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    Instance query = testDataset.instance(q);
+                    for (int r = 0; r < numRows; r++) {
+                        checksum += scalarDistance(query, testDataset.instance(r), min, width);
+                    }
+                }
+                report("Scalar distance", pairs, System.nanoTime() - start, checksum);
+
+                start = System.nanoTime();
+                checksum = 0;
+                double[] data = normalized.data();
+                for (int q = 0; q < QUERIES; q++) {
+                    int queryOffset = normalized.offset(q);
+                    for (int r = 0; r < numRows; r++) {
+                        checksum += VectorKernels.squaredDistance(data, queryOffset, data, normalized.offset(r),
+                                normalized.numColumns());
+                    }
+                }
+                report("Vector distance", pairs, System.nanoTime() - start, checksum);
+
+                start = System.nanoTime();
+                checksum = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    for (int r = 0; r < numRows; r++) {
+                        checksum += scalarDot(testDataset.instance(r), weights);
+                    }
+                }
+                report("Scalar dot", pairs, System.nanoTime() - start, checksum);
+
+                start = System.nanoTime();
+                checksum = 0;
+                data = raw.data();
+                for (int q = 0; q < QUERIES; q++) {
+                    for (int r = 0; r < numRows; r++) {
+                        checksum += VectorKernels.dot(data, raw.offset(r), weights, 0, raw.numColumns());
+                    }
+                }
+                report("Vector dot", pairs, System.nanoTime() - start, checksum);
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * The per-attribute loop EuclideanDistance runs for every pair.
+     */
+    private static double scalarDistance(Instance first, Instance second, double[] min, double[] width) {
+        double distance = 0;
+        for (int a = 0; a < first.numAttributes(); a++) {
+            if (a == first.classIndex()) {
+                continue;
+            }
+            double diff;
+            if (first.attribute(a).isNominal()) {
+                diff = first.value(a) == second.value(a) ? 0 : 1;
+            } else if (width[a] > 0) {
+                diff = (first.value(a) - min[a]) / width[a] - (second.value(a) - min[a]) / width[a];
+            } else {
+                diff = 0;
+            }
+            distance += diff * diff;
+        }
+        return distance;
+    }
+
+    private static double scalarDot(Instance instance, double[] weights) {
+        double sum = 0;
+        int p = 0;
+        for (int a = 0; a < instance.numAttributes(); a++) {
+            if (a != instance.classIndex()) {
+                sum += instance.value(a) * weights[p++];
+            }
+        }
+        return sum;
+    }
+
+    private static void report(String label, long pairs, long nanos, double checksum) {
+        System.out.printf("%-16s %8.1f M pairs/s  (%d ms, checksum %.3f)%n",
+                label, pairs / (nanos / 1000.0), nanos / 1_000_000, checksum);
+    }
+}
@@ -1,8 +1,9 @@
 package model;
 
+import preprocessing.InstanceDeduplicator;
+import preprocessing.InstancesFootprint;
 import preprocessing.dataImporter;
 import weka.classifiers.evaluation.Evaluation;
-import weka.classifiers.functions.Logistic;
 import weka.core.Instances;
 import weka.core.converters.ConverterUtils.DataSource;
 import weka.filters.Filter;
@@ -12,14 +13,22 @@ import weka.filters.unsupervised.attribute.Remove;
 import weka.filters.unsupervised.attribute.StringToNominal;
 import weka.filters.unsupervised.attribute.NominalToBinary;
 import weka.filters.unsupervised.attribute.RemoveUseless;
+import weka.filters.unsupervised.instance.NonSparseToSparse;
 import weka.attributeSelection.AttributeSelection;
 import weka.attributeSelection.CfsSubsetEval;  // Changed to CfsSubsetEval
 import weka.attributeSelection.GreedyStepwise; // Changed to GreedyStepwise search
 
 public class LogisticRegressionClassifier implements Command {
+    // Continue with SparseInstances after NominalToBinary
+    private boolean sparse = true;
+
+    public void setSparse(boolean sparse) {
+        this.sparse = sparse;
+    }
+
     public static void main(String[] args) {
         Command cmd = new LogisticRegressionClassifier();
-        cmd.exec(dataImporter.trainSource, dataImporter.testSource);
+        cmd.exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     @Override
@@ -46,13 +55,7 @@ public class LogisticRegressionClassifier implements Command {
             stringToNominal.setInputFormat(trainDataset);
             trainDataset = Filter.useFilter(trainDataset, stringToNominal);
             testDataset = Filter.useFilter(testDataset, stringToNominal);
-
-            System.out.println("Removing useless attributes...");
-            // Remove attributes with zero variance (useless for classification)
-            RemoveUseless removeUseless = new RemoveUseless();
-            removeUseless.setInputFormat(trainDataset);
-            trainDataset = Filter.useFilter(trainDataset, removeUseless);
-            testDataset = Filter.useFilter(testDataset, removeUseless);
+            Instances rawTestDataset = testDataset;
 
             System.out.println("Converting nominal attributes to binary...");
             // Convert nominal attributes to binary for Logistic Regression
@@ -61,12 +64,30 @@ public class LogisticRegressionClassifier implements Command {
             trainDataset = Filter.useFilter(trainDataset, nominalToBinary);
             testDataset = Filter.useFilter(testDataset, nominalToBinary);
 
+            System.out.println("Removing useless attributes...");
+            // Remove attributes with zero variance (useless for classification),
+            // including indicators of nominal values that never occur in the training data
+            RemoveUseless removeUseless = new RemoveUseless();
+            removeUseless.setInputFormat(trainDataset);
+            trainDataset = Filter.useFilter(trainDataset, removeUseless);
+            testDataset = Filter.useFilter(testDataset, removeUseless);
+
+            if (sparse) {
+                // One-hot columns are mostly zero: continue with sparse rows from here on
+                NonSparseToSparse nonSparseToSparse = new NonSparseToSparse();
+                nonSparseToSparse.setInputFormat(trainDataset);
+                trainDataset = Filter.useFilter(trainDataset, nonSparseToSparse);
+                testDataset = Filter.useFilter(testDataset, nonSparseToSparse);
+                System.out.println(InstancesFootprint.describe("Sparse training set", trainDataset));
+            }
+
             System.out.println("Normalizing attributes...");
             // Normalize numerical attributes
             Normalize normalize = new Normalize();
             normalize.setInputFormat(trainDataset);
             trainDataset = Filter.useFilter(trainDataset, normalize);
             testDataset = Filter.useFilter(testDataset, normalize);
+            Instances normalizedHeader = new Instances(trainDataset, 0);
 
             System.out.println("Original number of attributes: " + trainDataset.numAttributes());
 
@@ -113,6 +134,13 @@ public class LogisticRegressionClassifier implements Command {
                         SMOTE smote = new SMOTE();
                         smote.setInputFormat(trainDataset);
                         trainDataset = Filter.useFilter(trainDataset, smote);
+                        if (sparse) {
+                            // SMOTE emits dense synthetic rows, so compress the result again
+                            NonSparseToSparse nonSparseToSparse = new NonSparseToSparse();
+                            nonSparseToSparse.setInputFormat(trainDataset);
+                            trainDataset = Filter.useFilter(trainDataset, nonSparseToSparse);
+                            System.out.println(InstancesFootprint.describe("Sparse training set after SMOTE", trainDataset));
+                        }
 
                         // Report new class distribution
                         classCounts = new int[trainDataset.numClasses()];
@@ -131,8 +159,13 @@ public class LogisticRegressionClassifier implements Command {
                 System.out.println("Skipping SMOTE as this is not a binary classification problem");
             }
 
-            // Create and configure Logistic Regression classifier
-            Logistic lr = new Logistic();
+            // Collapse duplicate rows into weighted instances
+            int originalSize = trainDataset.numInstances();
+            trainDataset = InstanceDeduplicator.deduplicate(trainDataset);
+            System.out.println("Deduplicated training set: " + originalSize + " -> " + trainDataset.numInstances() + " instances");
+
+            // Create and configure Logistic Regression classifier (scores with a vectorized dot product)
+            VectorizedLogistic lr = new VectorizedLogistic();
             // Configure parameters
             lr.setRidge(0.5); // Regularization parameter
             lr.setMaxIts(100); // Maximum iterations
@@ -160,6 +193,15 @@ public class LogisticRegressionClassifier implements Command {
             System.out.println("Error Rate = " + evaluation.errorRate());
             System.out.println(evaluation.toClassDetailsString());
 
+            // Fold the filter chain and the model into one linear scorer over raw records
+            try {
+                CompiledLogistic compiled = CompiledLogistic.compile(rawTestDataset, normalizedHeader, normalize,
+                        trainDataset, lr);
+                CompiledScorerReport.compare(lr, testDataset, compiled, rawTestDataset);
+            } catch (IllegalStateException e) {
+                System.out.println("Could not compile Logistic model: " + e.getMessage());
+            }
+
         } catch (Exception e) {
             System.out.println("Error in Logistic Regression classification: " + e.getMessage());
             e.printStackTrace();
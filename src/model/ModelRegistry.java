@@ -0,0 +1,34 @@
+package model;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.classifiers.trees.J48;
+import weka.classifiers.trees.RandomForest;
+
+/**
+ * Untrained classifiers by name, for the entry points that take the model as a
+ * command-line argument ({@link WindowedLearner}, {@link ScoringLauncher}).
+ */
+public final class ModelRegistry {
+
+    private ModelRegistry() {
+    }
+
+    /**
+     * @param name NaiveBayes, J48 or RandomForest
+     * @return an untrained classifier
+     */
+    public static Classifier newClassifier(String name) {
+        switch (name) {
+            case "NaiveBayes":
+                return new NaiveBayes();
+            case "J48":
+                return new J48();
+            case "RandomForest":
+                return new RandomForest();
+            default:
+                throw new IllegalArgumentException("Unsupported model: " + name
+                        + " (expected NaiveBayes, J48 or RandomForest)");
+        }
+    }
+}
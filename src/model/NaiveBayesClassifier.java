@@ -1,6 +1,8 @@
 package model;
 
 import model.Command;
+import preprocessing.CompactDataset;
+import preprocessing.InstanceDeduplicator;
 import preprocessing.dataImporter;
 import weka.classifiers.bayes.NaiveBayes;
 import weka.classifiers.evaluation.Evaluation;
@@ -11,14 +13,16 @@ public class NaiveBayesClassifier implements Command {
 
     public static void main(String[] args) {
         Command cmd = new NaiveBayesClassifier();
-        cmd.exec(dataImporter.trainSource, dataImporter.testSource);
+        cmd.exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     @Override
     public void exec(DataSource trainSource, DataSource testSource) {
         try {
             // Load dataset
-            Instances trainDataset = trainSource.getDataSet();
+            CompactDataset compactTrain = CompactDataset.load(trainSource);
+            System.out.println(compactTrain);
+            Instances trainDataset = compactTrain.view();
 
             // Load testing dataset
             Instances testDataset = testSource.getDataSet();
@@ -33,6 +37,11 @@ public class NaiveBayesClassifier implements Command {
             }
 
 
+            // Collapse duplicate rows into weighted instances
+            int originalSize = trainDataset.numInstances();
+            trainDataset = InstanceDeduplicator.deduplicate(trainDataset);
+            System.out.println("Deduplicated training set: " + originalSize + " -> " + trainDataset.numInstances() + " instances");
+
             // Create and train the NaiveBayes classifier
             NaiveBayes nb = new NaiveBayes();
             nb.buildClassifier(trainDataset);
@@ -63,6 +72,10 @@ public class NaiveBayesClassifier implements Command {
             System.out.println("Error Rate = " + eval.errorRate());
             System.out.println(eval.toClassDetailsString());
 
+            // Export the model to flat log-probability tables and check it against Weka's scorer
+            CompiledNaiveBayes compiled = CompiledNaiveBayes.compile(nb, trainDataset);
+            CompiledScorerReport.compare(nb, testDataset, compiled, testDataset);
+
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -12,7 +12,7 @@ public class OneRClassifier implements Command {
     public static void main(String[] args) {
         // Fix: Create an instance of OneRClassifier, not LogisticRegressionClassifier
         Command cmd = new OneRClassifier();
-        cmd.exec(dataImporter.trainSource, dataImporter.testSource);
+        cmd.exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     @Override
@@ -0,0 +1,388 @@
+package model;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.trees.RandomTree;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Random forest that grows its trees in parallel batches and stops on its own once the
+ * out-of-bag error has converged.
+ *
+ * Each tree is a Weka RandomTree trained on a weighted bootstrap sample (drawn in
+ * proportion to instance weights, copies represented as weights). The rows a tree did
+ * not see vote with that tree's prediction, which gives a running OOB error for free.
+ * Growth stops once the forest has at least {@code minTrees} trees and the OOB error has
+ * moved by at most {@code tolerance} times its current value (but always allowing one
+ * row's worth) for {@code patience} consecutive batches, or at {@code maxTrees}. The
+ * tolerance is relative because the OOB error on NSL-KDD is already below 1%, where any
+ * fixed step of a tenth of a point looks flat. Because the OOB error is an unbiased
+ * estimate of the test error, it can also replace cross-validation when tuning K.
+ */
+public class OobRandomForest extends AbstractClassifier {
+    private static final long serialVersionUID = 1L;
+
+    private int maxTrees = 500;
+    private int minTrees = 50;
+    private int treesPerBatch = 10;
+    private int numFeatures = 0;
+    private double tolerance = 0.05;
+    private int patience = 2;
+    private int seed = 1;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    private List<Classifier> trees = new ArrayList<>();
+    private Instances header;
+    private int numClasses;
+    private double outOfBagError = Double.NaN;
+    private List<Double> outOfBagCurve = new ArrayList<>();
+
+    /**
+     * A trained tree together with its out-of-bag predictions, before they are merged.
+     */
+    private static class GrownTree {
+        RandomTree tree;
+        int[] outOfBagRows;
+        double[][] outOfBagDistributions;
+    }
+
+    @Override
+    public void buildClassifier(Instances data) throws Exception {
+        data = new Instances(data);
+        data.deleteWithMissingClass();
+
+        int numRows = data.numInstances();
+        header = new Instances(data, 0);
+        numClasses = data.numClasses();
+        trees = new ArrayList<>();
+        outOfBagCurve = new ArrayList<>();
+        outOfBagError = Double.NaN;
+        if (numRows == 0) {
+            return;
+        }
+
+        double[] cumulativeWeights = new double[numRows];
+        double total = 0;
+        for (int i = 0; i < numRows; i++) {
+            total += data.instance(i).weight();
+            cumulativeWeights[i] = total;
+        }
+
+        double[][] votes = new double[numRows][numClasses];
+        int stableBatches = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, numThreads));
+        try {
+            while (trees.size() < maxTrees) {
+                int batch = Math.min(treesPerBatch, maxTrees - trees.size());
+                List<Future<GrownTree>> futures = new ArrayList<>();
+                for (int b = 0; b < batch; b++) {
+                    final int treeSeed = seed + trees.size() + b;
+                    final Instances source = data;
+                    futures.add(executor.submit(() -> growTree(source, cumulativeWeights, treeSeed)));
+                }
+                for (Future<GrownTree> future : futures) {
+                    GrownTree grown = future.get();
+                    trees.add(grown.tree);
+                    for (int j = 0; j < grown.outOfBagRows.length; j++) {
+                        double[] vote = votes[grown.outOfBagRows[j]];
+                        double[] distribution = grown.outOfBagDistributions[j];
+                        for (int c = 0; c < numClasses; c++) {
+                            vote[c] += distribution[c];
+                        }
+                    }
+                }
+
+                double previous = outOfBagError;
+                outOfBagError = outOfBagError(data, votes);
+                outOfBagCurve.add(outOfBagError);
+                if (getDebug()) {
+                    System.out.println("Trees: " + trees.size() + ", OOB error: " + outOfBagError);
+                }
+
+                double allowed = Math.max(tolerance * outOfBagError, 1.0 / numRows);
+                if (!Double.isNaN(previous) && Math.abs(outOfBagError - previous) <= allowed) {
+                    if (++stableBatches >= patience && trees.size() >= minTrees) {
+                        break;
+                    }
+                } else {
+                    stableBatches = 0;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private GrownTree growTree(Instances data, double[] cumulativeWeights, int treeSeed) throws Exception {
+        int numRows = data.numInstances();
+        Random random = new Random(treeSeed);
+        double total = cumulativeWeights[numRows - 1];
+
+        // Bootstrap: numRows weighted draws, each drawn row kept once with its draw count as weight
+        int[] counts = new int[numRows];
+        for (int i = 0; i < numRows; i++) {
+            int row = Arrays.binarySearch(cumulativeWeights, random.nextDouble() * total);
+            counts[row < 0 ? -row - 1 : row]++;
+        }
+
+        Instances bag = new Instances(data, numRows);
+        int numOutOfBag = 0;
+        for (int i = 0; i < numRows; i++) {
+            if (counts[i] > 0) {
+                Instance copy = (Instance) data.instance(i).copy();
+                copy.setWeight(counts[i]);
+                bag.add(copy);
+            } else {
+                numOutOfBag++;
+            }
+        }
+
+        RandomTree tree = new RandomTree();
+        tree.setKValue(numFeatures);
+        tree.setSeed(treeSeed);
+        tree.setDoNotCheckCapabilities(true);
+        tree.buildClassifier(bag);
+
+        GrownTree grown = new GrownTree();
+        grown.tree = tree;
+        grown.outOfBagRows = new int[numOutOfBag];
+        grown.outOfBagDistributions = new double[numOutOfBag][];
+        int j = 0;
+        for (int i = 0; i < numRows; i++) {
+            if (counts[i] == 0) {
+                grown.outOfBagRows[j] = i;
+                grown.outOfBagDistributions[j++] = tree.distributionForInstance(data.instance(i));
+            }
+        }
+        return grown;
+    }
+
+    /**
+     * Weighted misclassification rate over the rows that have at least one OOB vote.
+     */
+    private static double outOfBagError(Instances data, double[][] votes) {
+        double wrong = 0;
+        double total = 0;
+        for (int i = 0; i < votes.length; i++) {
+            if (Utils.sum(votes[i]) == 0) {
+                continue;
+            }
+            Instance instance = data.instance(i);
+            total += instance.weight();
+            if (Utils.maxIndex(votes[i]) != (int) instance.classValue()) {
+                wrong += instance.weight();
+            }
+        }
+        return total > 0 ? wrong / total : Double.NaN;
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) throws Exception {
+        double[] sums = new double[numClasses];
+        for (Classifier tree : trees) {
+            double[] distribution = tree.distributionForInstance(instance);
+            for (int c = 0; c < numClasses; c++) {
+                sums[c] += distribution[c];
+            }
+        }
+        if (Utils.sum(sums) > 0) {
+            Utils.normalize(sums);
+        }
+        return sums;
+    }
+
+    /**
+     * Build a forest that keeps only the given trees, e.g. after compaction.
+     *
+     * @param treeIndices positions in {@link #getTrees()}
+     * @return a new forest sharing the selected trees
+     */
+    public OobRandomForest subset(int[] treeIndices) {
+        OobRandomForest forest = new OobRandomForest();
+        forest.maxTrees = maxTrees;
+        forest.minTrees = minTrees;
+        forest.treesPerBatch = treesPerBatch;
+        forest.numFeatures = numFeatures;
+        forest.tolerance = tolerance;
+        forest.patience = patience;
+        forest.seed = seed;
+        forest.numThreads = numThreads;
+        forest.header = header;
+        forest.numClasses = numClasses;
+        for (int index : treeIndices) {
+            forest.trees.add(trees.get(index));
+        }
+        return forest;
+    }
+
+    /**
+     * @return the trees in the order they were grown
+     */
+    public List<Classifier> getTrees() {
+        return Collections.unmodifiableList(trees);
+    }
+
+    /**
+     * @return the header of the data the forest was trained on (no rows)
+     */
+    public Instances getHeader() {
+        return header;
+    }
+
+    public int getNumTrees() {
+        return trees.size();
+    }
+
+    /**
+     * @return the OOB error after the last batch
+     */
+    public double getOutOfBagError() {
+        return outOfBagError;
+    }
+
+    /**
+     * @return the OOB error after each batch
+     */
+    public List<Double> getOutOfBagCurve() {
+        return Collections.unmodifiableList(outOfBagCurve);
+    }
+
+    public int getMaxTrees() {
+        return maxTrees;
+    }
+
+    public void setMaxTrees(int maxTrees) {
+        this.maxTrees = maxTrees;
+    }
+
+    public int getMinTrees() {
+        return minTrees;
+    }
+
+    /**
+     * @param minTrees trees grown before the OOB error may stop growth
+     */
+    public void setMinTrees(int minTrees) {
+        this.minTrees = minTrees;
+    }
+
+    public int getTreesPerBatch() {
+        return treesPerBatch;
+    }
+
+    public void setTreesPerBatch(int treesPerBatch) {
+        this.treesPerBatch = treesPerBatch;
+    }
+
+    public int getNumFeatures() {
+        return numFeatures;
+    }
+
+    /**
+     * @param numFeatures attributes tried per split, 0 means int(log2(#predictors) + 1)
+     */
+    public void setNumFeatures(int numFeatures) {
+        this.numFeatures = numFeatures;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @param tolerance allowed change of the OOB error per batch, as a fraction of the
+     *                  current OOB error (0.05 = 5%)
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public int getPatience() {
+        return patience;
+    }
+
+    public void setPatience(int patience) {
+        this.patience = patience;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public void setSeed(int seed) {
+        this.seed = seed;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String value = Utils.getOption('I', options);
+        if (!value.isEmpty()) {
+            setMaxTrees(Integer.parseInt(value));
+        }
+        value = Utils.getOption('M', options);
+        if (!value.isEmpty()) {
+            setMinTrees(Integer.parseInt(value));
+        }
+        value = Utils.getOption('K', options);
+        if (!value.isEmpty()) {
+            setNumFeatures(Integer.parseInt(value));
+        }
+        value = Utils.getOption('B', options);
+        if (!value.isEmpty()) {
+            setTreesPerBatch(Integer.parseInt(value));
+        }
+        value = Utils.getOption('E', options);
+        if (!value.isEmpty()) {
+            setTolerance(Double.parseDouble(value));
+        }
+        value = Utils.getOption('P', options);
+        if (!value.isEmpty()) {
+            setPatience(Integer.parseInt(value));
+        }
+        value = Utils.getOption('S', options);
+        if (!value.isEmpty()) {
+            setSeed(Integer.parseInt(value));
+        }
+        super.setOptions(options);
+    }
+
+    @Override
+    public String[] getOptions() {
+        ArrayList<String> options = new ArrayList<>();
+        options.add("-I");
+        options.add("" + maxTrees);
+        options.add("-M");
+        options.add("" + minTrees);
+        options.add("-K");
+        options.add("" + numFeatures);
+        options.add("-B");
+        options.add("" + treesPerBatch);
+        options.add("-E");
+        options.add("" + tolerance);
+        options.add("-P");
+        options.add("" + patience);
+        options.add("-S");
+        options.add("" + seed);
+        Collections.addAll(options, super.getOptions());
+        return options.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,241 @@
+package model;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.evaluation.Evaluation;
+import weka.core.Instances;
+import weka.core.OptionHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Hyperparameter search on growing stratified subsamples instead of the full dataset.
+ *
+ * All candidates are scored on a small sample first (5%, then 10%, 25%, 50%, 100% by
+ * default; the samples are nested). After each stage, candidates whose score is more
+ * than {@code z} standard errors below the current best are dropped, because they are
+ * unlikely to catch up on more data. Sampling stops early when a single candidate is
+ * left, or once at least {@code minStages} sample sizes have been scored and the best
+ * error (1 - score) fell by less than {@code flatTolerance} of its previous value from
+ * one stage to the next (the learning curve has flattened). The tolerance is relative
+ * to the error because J48 and RandomForest already score around 0.99 here, where an
+ * absolute step of a few tenths of a point is the whole remaining error.
+ */
+public class ProgressiveSamplingTuner {
+
+    /**
+     * Scores one candidate on one sample; higher is better, on a 0..1 scale (accuracy).
+     */
+    public interface CandidateScorer {
+        double score(String[] options, Instances sample) throws Exception;
+    }
+
+    /**
+     * One point of the learning curve: the best score seen at a given sample size.
+     */
+    public static class CurvePoint {
+        public final double fraction;
+        public final int sampleSize;
+        public final double bestScore;
+        public final int candidates;
+        public final double seconds;
+
+        CurvePoint(double fraction, int sampleSize, double bestScore, int candidates, double seconds) {
+            this.fraction = fraction;
+            this.sampleSize = sampleSize;
+            this.bestScore = bestScore;
+            this.candidates = candidates;
+            this.seconds = seconds;
+        }
+    }
+
+    private double[] fractions = {0.05, 0.10, 0.25, 0.50, 1.0};
+    private double flatTolerance = 0.1;
+    private int minStages = 3;
+    private double z = 2.0;
+    private int seed = 1;
+
+    private final List<CurvePoint> curve = new ArrayList<>();
+
+    /**
+     * Score candidates with k-fold cross-validation of a copy of {@code template}.
+     *
+     * @param template the classifier to configure with each candidate's options
+     * @param numFolds folds per evaluation
+     * @param seed     seed for the fold split
+     * @return the scorer
+     */
+    public static CandidateScorer crossValidation(Classifier template, int numFolds, int seed) {
+        return (options, sample) -> {
+            Classifier classifier = AbstractClassifier.makeCopy(template);
+            ((OptionHandler) classifier).setOptions(options.clone());
+            Evaluation eval = new Evaluation(sample);
+            eval.crossValidateModel(classifier, sample, Math.min(numFolds, sample.numInstances()), new Random(seed));
+            return eval.pctCorrect() / 100;
+        };
+    }
+
+    /**
+     * Run the progressive search and print the learning curve and the time saved compared
+     * with scoring every candidate on the full data.
+     *
+     * @param candidates option arrays to compare
+     * @param data       the tuning data (class index set)
+     * @param scorer     how to score one candidate on one sample
+     * @return the options of the best surviving candidate
+     */
+    public String[] tune(List<String[]> candidates, Instances data, CandidateScorer scorer) throws Exception {
+        curve.clear();
+        List<List<Integer>> rowsByClass = shuffledRowsByClass(data, new Random(seed));
+
+        List<String[]> alive = new ArrayList<>(candidates);
+        String[] best = alive.get(0);
+        double bestScore = Double.NaN;
+        double totalSeconds = 0;
+        double lastSecondsPerCandidate = 0;
+        int lastSampleSize = 0;
+
+        for (double fraction : fractions) {
+            Instances sample = stratifiedSample(data, rowsByClass, fraction);
+            long start = System.nanoTime();
+
+            double[] scores = new double[alive.size()];
+            double stageBest = -1;
+            for (int c = 0; c < alive.size(); c++) {
+                scores[c] = scorer.score(alive.get(c), sample);
+                System.out.println(String.format("  %5.1f%% (%d rows) %s: %.4f", fraction * 100,
+                        sample.numInstances(), String.join(" ", alive.get(c)), scores[c]));
+                if (scores[c] > stageBest) {
+                    stageBest = scores[c];
+                    best = alive.get(c);
+                }
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            totalSeconds += seconds;
+            lastSecondsPerCandidate = seconds / alive.size();
+            lastSampleSize = sample.numInstances();
+            curve.add(new CurvePoint(fraction, sample.numInstances(), stageBest, alive.size(), seconds));
+
+            // Drop candidates that are clearly behind at this sample size
+            double standardError = Math.sqrt(stageBest * (1 - stageBest) / sample.numInstances());
+            List<String[]> survivors = new ArrayList<>();
+            for (int c = 0; c < alive.size(); c++) {
+                if (scores[c] >= stageBest - z * standardError) {
+                    survivors.add(alive.get(c));
+                }
+            }
+            alive = survivors;
+
+            double previousError = 1 - bestScore;
+            boolean flat = curve.size() >= minStages
+                    && previousError - (1 - stageBest) <= flatTolerance * previousError;
+            bestScore = stageBest;
+            if (flat || alive.size() == 1) {
+                break;
+            }
+        }
+
+        // Grid cost on the full data, assuming evaluation time grows linearly with sample size
+        double fullGridSeconds = candidates.size() * lastSecondsPerCandidate
+                * data.numInstances() / Math.max(1, lastSampleSize);
+        System.out.println("Learning curve (fraction, rows, best score, candidates, seconds):");
+        for (CurvePoint point : curve) {
+            System.out.println(String.format("  %5.1f%%  %7d  %.4f  %2d  %.1f", point.fraction * 100,
+                    point.sampleSize, point.bestScore, point.candidates, point.seconds));
+        }
+        System.out.println(String.format("Progressive search: %.1f s, estimated full-data grid: %.1f s, saved %.1f s",
+                totalSeconds, fullGridSeconds, Math.max(0, fullGridSeconds - totalSeconds)));
+        return best;
+    }
+
+    private static List<List<Integer>> shuffledRowsByClass(Instances data, Random random) {
+        List<List<Integer>> rowsByClass = new ArrayList<>();
+        for (int c = 0; c < data.numClasses(); c++) {
+            rowsByClass.add(new ArrayList<>());
+        }
+        for (int i = 0; i < data.numInstances(); i++) {
+            if (!data.instance(i).classIsMissing()) {
+                rowsByClass.get((int) data.instance(i).classValue()).add(i);
+            }
+        }
+        for (List<Integer> rows : rowsByClass) {
+            Collections.shuffle(rows, random);
+        }
+        return rowsByClass;
+    }
+
+    /**
+     * Same fraction of every class; prefixes of the shuffled rows, so samples are nested.
+     */
+    private static Instances stratifiedSample(Instances data, List<List<Integer>> rowsByClass, double fraction) {
+        Instances sample = new Instances(data, (int) (data.numInstances() * fraction) + rowsByClass.size());
+        for (List<Integer> rows : rowsByClass) {
+            int take = Math.min(rows.size(), (int) Math.ceil(rows.size() * fraction));
+            for (int i = 0; i < take; i++) {
+                sample.add(data.instance(rows.get(i)));
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * @return the learning curve of the last {@link #tune} call
+     */
+    public List<CurvePoint> getCurve() {
+        return Collections.unmodifiableList(curve);
+    }
+
+    public double[] getFractions() {
+        return fractions;
+    }
+
+    public void setFractions(double[] fractions) {
+        this.fractions = fractions;
+    }
+
+    public double getFlatTolerance() {
+        return flatTolerance;
+    }
+
+    /**
+     * @param flatTolerance smallest relative drop of the best error that still counts as
+     *                      progress (0.1 = the error must fall by 10% per stage)
+     */
+    public void setFlatTolerance(double flatTolerance) {
+        this.flatTolerance = flatTolerance;
+    }
+
+    public int getMinStages() {
+        return minStages;
+    }
+
+    /**
+     * @param minStages sample sizes scored before a flat learning curve may stop the search
+     */
+    public void setMinStages(int minStages) {
+        this.minStages = minStages;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * @param z pruning margin, in standard errors of the best score
+     */
+    public void setZ(double z) {
+        this.z = z;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public void setSeed(int seed) {
+        this.seed = seed;
+    }
+}
@@ -1,6 +1,7 @@
 package model;
 
 import model.Command;
+import preprocessing.CompactDataset;
 import preprocessing.dataImporter;
 import weka.classifiers.Evaluation;
 import weka.classifiers.trees.RandomForest;
@@ -11,7 +12,7 @@ public class RandomForestClassifier implements Command {
 
     public static void main(String[] args) {
         Command cmd = new RandomForestClassifier();
-        cmd.exec(dataImporter.trainSource, dataImporter.testSource);
+        cmd.exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     private static void setClassIndex(Instances dataset) {
@@ -24,7 +25,9 @@ public class RandomForestClassifier implements Command {
     public void exec(DataSource trainSource, DataSource testSource) {
         try {
             // Load datasets
-            Instances trainingDataSet = trainSource.getDataSet();
+            CompactDataset compactTrain = CompactDataset.load(trainSource);
+            System.out.println(compactTrain);
+            Instances trainingDataSet = compactTrain.view();
 
             // Load testing dataset
             Instances testingDataSet = testSource.getDataSet();
@@ -1,19 +1,23 @@
 package model;
 
 import model.Command;
+import preprocessing.HeaderMapper;
 import preprocessing.dataImporter;
 import weka.classifiers.Evaluation;
-import weka.classifiers.meta.CVParameterSelection;
-import weka.classifiers.trees.RandomForest;
 import weka.core.Instances;
+import weka.core.SerializationHelper;
 import weka.core.converters.ConverterUtils.DataSource;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 import static preprocessing.dataImporter.validSource;
 
 public class RandomForestTuning implements Command {
     public static void main(String[] args) {
         Command cmd = new RandomForestTuning();
-        cmd.exec(dataImporter.trainSource, dataImporter.testSource);
+        cmd.exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     private static void setClassIndex(Instances dataset) {
@@ -32,43 +36,28 @@ public class RandomForestTuning implements Command {
             Instances testingDataSet = testSource.getDataSet();
 
             // Load validation dataset
-            Instances validDataset = validSource.getDataSet();
+            Instances validDataset = validSource().getDataSet();
 
             // Set class index to the last attribute
             setClassIndex(trainingDataSet);
             setClassIndex(testingDataSet);
             setClassIndex(validDataset);
 
-            double bestAccuracy = -1;
-            String[] bestOptions = null;
-
-            RandomForest forest = new RandomForest();
-
-            // Set up CVParameterSelection for parameter tuning
-            CVParameterSelection ps = new CVParameterSelection();
-            ps.setClassifier(forest);
-            ps.setNumFolds(10); // 10-fold cross-validation
-            ps.addCVParameter("I 10 30 3"); // GOOD – values: 10, 20, 30
-            ps.addCVParameter("K 0 5 1");    // Only 6 values → total 3 * 6 = 18 models
-
-            // Perform cross-validation to find the best parameters on the validation dataset
-            ps.buildClassifier(validDataset);
-
-            // Create and configure a RandomForest classifier with the best options
-            RandomForest tempRf = new RandomForest();
-            tempRf.setOptions(ps.getBestClassifierOptions());
-            tempRf.buildClassifier(validDataset);
-
-            // Evaluate the model on the validation dataset
-            Evaluation eval = new Evaluation(validDataset);
-            eval.crossValidateModel(tempRf, validDataset, 5, new java.util.Random(1));
-
-            // Update the best options if current options are better
-            if (eval.pctCorrect() > bestAccuracy) {
-                bestAccuracy = eval.pctCorrect();
-                bestOptions = ps.getBestClassifierOptions();
+            List<String[]> candidates = new ArrayList<>();
+            for (int k = 0; k <= 5; k++) {
+                candidates.add(new String[]{"-K", "" + k});
             }
 
+            // One incremental forest per candidate K and sample; the out-of-bag accuracy replaces
+            // cross-validation and each forest stops growing once that estimate has converged
+            ProgressiveSamplingTuner tuner = new ProgressiveSamplingTuner();
+            String[] bestOptions = tuner.tune(candidates, validDataset, (options, sample) -> {
+                OobRandomForest forest = new OobRandomForest();
+                forest.setOptions(options.clone());
+                forest.buildClassifier(sample);
+                return 1 - forest.getOutOfBagError();
+            });
+
             // Set up the output
             System.out.println("\nPost-tuning RandomForest\n======\n");
 
@@ -76,9 +65,11 @@ public class RandomForestTuning implements Command {
             System.out.println("Best Parameters: " + String.join(" ", bestOptions));
 
             // Train the RandomForest classifier with the best parameters
-            RandomForest finalRf = new RandomForest();
+            OobRandomForest finalRf = new OobRandomForest();
             finalRf.setOptions(bestOptions);
             finalRf.buildClassifier(trainingDataSet);
+            System.out.println("Final forest: " + finalRf.getNumTrees() + " trees, OOB error = "
+                    + finalRf.getOutOfBagError());
 
             // Evaluate the classifier on the test dataset
             Evaluation testEval = new Evaluation(trainingDataSet);
@@ -104,6 +95,14 @@ public class RandomForestTuning implements Command {
             System.out.println("F-Measure = " + testEval.fMeasure(1));
             System.out.println("Error Rate = " + testEval.errorRate());
             System.out.println(testEval.toClassDetailsString());
+
+            // Keep only the trees that matter on the validation set and save the smaller model.
+            // KDDValid declares its attributes differently, so its rows are first mapped by name
+            Instances compactionDataset = HeaderMapper.map(validDataset, trainingDataSet);
+            OobRandomForest compactRf = (new ForestCompactor(0.001)).compact(finalRf, compactionDataset);
+            new File("models").mkdirs();
+            SerializationHelper.write("models/RandomForestCompact.model", compactRf);
+            System.out.println("Compact model written to models/RandomForestCompact.model");
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,796 @@
+package model;
+
+import preprocessing.FeatureMatrix;
+import weka.classifiers.AbstractClassifier;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.IntStream;
+
+/**
+ * Two-class C-SVM with the RBF kernel exp(-gamma * |x - y|^2), trained with the SMO
+ * variant used by LIBSVM: second-order working set selection, shrinking and a bounded
+ * kernel cache.
+ *
+ * <ul>
+ *   <li>Kernel rows are kept in an LRU cache of {@code float[]} slots sized by
+ *   {@code -M} (MB). A missing row is computed in parallel over the training rows of a
+ *   {@link FeatureMatrix} with {@link VectorKernels#squaredDistance}.</li>
+ *   <li>Shrinking moves variables that are stuck at a bound out of the active set, so
+ *   selection, gradient updates and kernel rows cover the active variables only.
+ *   Before the final optimality check the gradient of the dropped variables is rebuilt
+ *   and all of them are checked again.</li>
+ * </ul>
+ *
+ * Input is used as-is, so numeric attributes should already be normalized (as in
+ * {@link SVMClassifier}). Class value 1 is the positive class. The probability output
+ * is a logistic of the decision value and is not calibrated.
+ */
+public class RbfSvm extends AbstractClassifier {
+    private static final long serialVersionUID = 1L;
+    private static final double TAU = 1e-12;
+
+    private double c = 1.0;
+    private double gamma = 0.01;
+    private int cacheSizeMB = 200;
+    private double tolerance = 1e-3;
+    private boolean shrinking = true;
+
+    private FeatureMatrix supportVectors;
+    private double[] coefficients;
+    private double rho;
+    private int numClasses;
+
+    private transient double[] query;
+
+    // Statistics of the last buildClassifier call
+    private long cacheHits;
+    private long cacheMisses;
+    private long kernelEvaluations;
+    private int cachedRows;
+    private int iterations;
+
+    @Override
+    public void buildClassifier(Instances data) throws Exception {
+        data = new Instances(data);
+        data.deleteWithMissingClass();
+        if (data.numClasses() != 2) {
+            throw new Exception("RbfSvm only handles two-class problems");
+        }
+        numClasses = data.numClasses();
+
+        FeatureMatrix train = FeatureMatrix.raw(data);
+        int l = train.numRows();
+        byte[] y = new byte[l];
+        double[] upper = new double[l];
+        for (int i = 0; i < l; i++) {
+            y[i] = (byte) (train.classValue(i) == 1 ? 1 : -1);
+            upper[i] = c * train.weight(i);
+        }
+
+        double[] alpha = new Solver(train, y, upper).solve();
+
+        // Keep only the support vectors and their signed coefficients
+        Instances support = new Instances(data, 0);
+        ArrayList<Double> coef = new ArrayList<>();
+        for (int i = 0; i < l; i++) {
+            if (alpha[i] > 0) {
+                support.add(data.instance(i));
+                coef.add(alpha[i] * y[i]);
+            }
+        }
+        supportVectors = FeatureMatrix.raw(support);
+        coefficients = new double[coef.size()];
+        for (int s = 0; s < coefficients.length; s++) {
+            coefficients[s] = coef.get(s);
+        }
+    }
+
+    /**
+     * @return the SVM output f(x); positive means class value 1
+     */
+    public double decisionValue(Instance instance) {
+        if (query == null) {
+            query = supportVectors.newRow();
+        }
+        supportVectors.encode(instance, query);
+
+        double[] rows = supportVectors.data();
+        int numColumns = supportVectors.numColumns();
+        double sum = -rho;
+        for (int s = 0; s < coefficients.length; s++) {
+            double distance = VectorKernels.squaredDistance(query, 0, rows, supportVectors.offset(s), numColumns);
+            sum += coefficients[s] * Math.exp(-gamma * distance);
+        }
+        return sum;
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) throws Exception {
+        double[] distribution = new double[numClasses];
+        distribution[1] = 1 / (1 + Math.exp(-decisionValue(instance)));
+        distribution[0] = 1 - distribution[1];
+        return distribution;
+    }
+
+    /**
+     * SMO solver for min 0.5 a'Qa - e'a, 0 &lt;= a_i &lt;= C_i, y'a = 0 with
+     * Q_ij = y_i y_j K(x_i, x_j) (the C-SVC case of LIBSVM's Solver).
+     *
+     * As in LIBSVM, variables are addressed by position and the active set is the prefix
+     * [0, activeSize). Shrinking swaps inactive variables behind it, so kernel rows
+     * are only computed for the active prefix.
+     */
+    private class Solver {
+        private final int l;
+        private final RowCache cache;
+
+        // Per-position state, permuted together by swap()
+        private final int[] index;
+        private final byte[] y;
+        private final double[] upper;
+        private final double[] alpha;
+        private final double[] gradient;
+        // Gradient contribution of the variables at their upper bound, for reconstruction
+        private final double[] gradientBar;
+        private int activeSize;
+        private boolean unshrunk;
+
+        private int selectedI;
+        private int selectedJ;
+
+        Solver(FeatureMatrix train, byte[] y, double[] upper) {
+            this.l = train.numRows();
+            this.index = IntStream.range(0, l).toArray();
+            this.y = y.clone();
+            this.upper = upper.clone();
+            this.cache = new RowCache(train, index, this.y, gamma, (long) cacheSizeMB << 20);
+            alpha = new double[l];
+            gradient = new double[l];
+            gradientBar = new double[l];
+            Arrays.fill(gradient, -1);
+            activeSize = l;
+        }
+
+        private boolean isUpperBound(int i) {
+            return alpha[i] >= upper[i];
+        }
+
+        private boolean isLowerBound(int i) {
+            return alpha[i] <= 0;
+        }
+
+        private boolean isFree(int i) {
+            return !isUpperBound(i) && !isLowerBound(i);
+        }
+
+        /**
+         * @return the alphas, indexed by training row
+         */
+        double[] solve() {
+            int maxIterations = (int) Math.min(Integer.MAX_VALUE, Math.max(10_000_000L, 100L * l));
+            int counter = Math.min(l, 1000) + 1;
+            iterations = 0;
+
+            while (iterations < maxIterations) {
+                if (--counter == 0) {
+                    counter = Math.min(l, 1000);
+                    if (shrinking) {
+                        shrink();
+                    }
+                }
+
+                if (selectWorkingSet()) {
+                    // Optimal on the active set: check again with every variable
+                    reconstructGradient();
+                    activeSize = l;
+                    if (selectWorkingSet()) {
+                        break;
+                    }
+                    counter = 1;
+                }
+
+                iterations++;
+                update(selectedI, selectedJ);
+            }
+            if (iterations >= maxIterations) {
+                System.out.println("RbfSvm: reached " + maxIterations + " iterations before converging");
+            }
+
+            reconstructGradient();
+            activeSize = l;
+            rho = computeRho();
+            cacheHits = cache.hits;
+            cacheMisses = cache.misses;
+            kernelEvaluations = cache.evaluations;
+            cachedRows = cache.capacity;
+
+            double[] result = new double[l];
+            for (int k = 0; k < l; k++) {
+                result[index[k]] = alpha[k];
+            }
+            return result;
+        }
+
+        /**
+         * Second-order working set selection (Fan, Chen and Lin, 2005).
+         *
+         * @return true if the active set is already optimal within the tolerance
+         */
+        private boolean selectWorkingSet() {
+            double gMax = Double.NEGATIVE_INFINITY;
+            int gMaxIndex = -1;
+            for (int k = 0; k < activeSize; k++) {
+                if (y[k] == 1) {
+                    if (!isUpperBound(k) && -gradient[k] >= gMax) {
+                        gMax = -gradient[k];
+                        gMaxIndex = k;
+                    }
+                } else if (!isLowerBound(k) && gradient[k] >= gMax) {
+                    gMax = gradient[k];
+                    gMaxIndex = k;
+                }
+            }
+
+            int i = gMaxIndex;
+            float[] qi = i == -1 ? null : cache.row(i, activeSize);
+            double gMax2 = Double.NEGATIVE_INFINITY;
+            int gMinIndex = -1;
+            double minObjectiveDiff = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < activeSize; k++) {
+                double gradientDiff;
+                double quadratic;
+                if (y[k] == 1) {
+                    if (isLowerBound(k)) {
+                        continue;
+                    }
+                    gMax2 = Math.max(gMax2, gradient[k]);
+                    gradientDiff = gMax + gradient[k];
+                    if (gradientDiff <= 0) {
+                        continue;
+                    }
+                    quadratic = 2 - 2 * y[i] * qi[k];
+                } else {
+                    if (isUpperBound(k)) {
+                        continue;
+                    }
+                    gMax2 = Math.max(gMax2, -gradient[k]);
+                    gradientDiff = gMax - gradient[k];
+                    if (gradientDiff <= 0) {
+                        continue;
+                    }
+                    quadratic = 2 + 2 * y[i] * qi[k];
+                }
+                // K(x, x) = 1 for the RBF kernel
+                double objectiveDiff = -(gradientDiff * gradientDiff) / (quadratic > 0 ? quadratic : TAU);
+                if (objectiveDiff <= minObjectiveDiff) {
+                    gMinIndex = k;
+                    minObjectiveDiff = objectiveDiff;
+                }
+            }
+
+            if (gMax + gMax2 < tolerance || gMinIndex == -1) {
+                return true;
+            }
+            selectedI = i;
+            selectedJ = gMinIndex;
+            return false;
+        }
+
+        private void update(int i, int j) {
+            float[] qi = cache.row(i, activeSize);
+            float[] qj = cache.row(j, activeSize);
+            double ci = upper[i];
+            double cj = upper[j];
+            double oldAi = alpha[i];
+            double oldAj = alpha[j];
+            boolean wasUpperI = isUpperBound(i);
+            boolean wasUpperJ = isUpperBound(j);
+
+            double ai = oldAi;
+            double aj = oldAj;
+            if (y[i] != y[j]) {
+                double quadratic = 2 + 2 * qi[j];
+                double delta = (-gradient[i] - gradient[j]) / (quadratic > 0 ? quadratic : TAU);
+                double diff = ai - aj;
+                ai += delta;
+                aj += delta;
+                if (diff > 0) {
+                    if (aj < 0) {
+                        aj = 0;
+                        ai = diff;
+                    }
+                } else if (ai < 0) {
+                    ai = 0;
+                    aj = -diff;
+                }
+                if (diff > ci - cj) {
+                    if (ai > ci) {
+                        ai = ci;
+                        aj = ci - diff;
+                    }
+                } else if (aj > cj) {
+                    aj = cj;
+                    ai = cj + diff;
+                }
+            } else {
+                double quadratic = 2 - 2 * qi[j];
+                double delta = (gradient[i] - gradient[j]) / (quadratic > 0 ? quadratic : TAU);
+                double sum = ai + aj;
+                ai -= delta;
+                aj += delta;
+                if (sum > ci) {
+                    if (ai > ci) {
+                        ai = ci;
+                        aj = sum - ci;
+                    }
+                } else if (aj < 0) {
+                    aj = 0;
+                    ai = sum;
+                }
+                if (sum > cj) {
+                    if (aj > cj) {
+                        aj = cj;
+                        ai = sum - cj;
+                    }
+                } else if (ai < 0) {
+                    ai = 0;
+                    aj = sum;
+                }
+            }
+            alpha[i] = ai;
+            alpha[j] = aj;
+
+            double deltaI = ai - oldAi;
+            double deltaJ = aj - oldAj;
+            for (int k = 0; k < activeSize; k++) {
+                gradient[k] += qi[k] * deltaI + qj[k] * deltaJ;
+            }
+
+            // Only a change of bound status needs the full rows
+            if (wasUpperI != isUpperBound(i)) {
+                qi = cache.row(i, l);
+                double sign = wasUpperI ? -ci : ci;
+                for (int k = 0; k < l; k++) {
+                    gradientBar[k] += sign * qi[k];
+                }
+            }
+            if (wasUpperJ != isUpperBound(j)) {
+                qj = cache.row(j, l);
+                double sign = wasUpperJ ? -cj : cj;
+                for (int k = 0; k < l; k++) {
+                    gradientBar[k] += sign * qj[k];
+                }
+            }
+        }
+
+        /**
+         * Move bounded variables whose gradient says they will stay at their bound
+         * behind the active prefix.
+         */
+        private void shrink() {
+            double gMax1 = Double.NEGATIVE_INFINITY;
+            double gMax2 = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < activeSize; k++) {
+                if (y[k] == 1) {
+                    if (!isUpperBound(k)) {
+                        gMax1 = Math.max(gMax1, -gradient[k]);
+                    }
+                    if (!isLowerBound(k)) {
+                        gMax2 = Math.max(gMax2, gradient[k]);
+                    }
+                } else {
+                    if (!isUpperBound(k)) {
+                        gMax2 = Math.max(gMax2, -gradient[k]);
+                    }
+                    if (!isLowerBound(k)) {
+                        gMax1 = Math.max(gMax1, gradient[k]);
+                    }
+                }
+            }
+
+            // Close to the optimum: bring everything back once so shrinking mistakes get fixed
+            if (!unshrunk && gMax1 + gMax2 <= tolerance * 10) {
+                unshrunk = true;
+                reconstructGradient();
+                activeSize = l;
+            }
+
+            for (int k = 0; k < activeSize; k++) {
+                if (canShrink(k, gMax1, gMax2)) {
+                    activeSize--;
+                    while (activeSize > k) {
+                        if (!canShrink(activeSize, gMax1, gMax2)) {
+                            swapIndex(k, activeSize);
+                            break;
+                        }
+                        activeSize--;
+                    }
+                }
+            }
+        }
+
+        private boolean canShrink(int k, double gMax1, double gMax2) {
+            if (isUpperBound(k)) {
+                return y[k] == 1 ? -gradient[k] > gMax1 : -gradient[k] > gMax2;
+            }
+            if (isLowerBound(k)) {
+                return y[k] == 1 ? gradient[k] > gMax2 : gradient[k] > gMax1;
+            }
+            return false;
+        }
+
+        private void swapIndex(int i, int j) {
+            cache.swap(i, j);
+            swap(index, i, j);
+            byte yi = y[i];
+            y[i] = y[j];
+            y[j] = yi;
+            swap(upper, i, j);
+            swap(alpha, i, j);
+            swap(gradient, i, j);
+            swap(gradientBar, i, j);
+        }
+
+        /**
+         * Rebuild the gradient of the shrunk variables (positions activeSize..l-1) from
+         * gradientBar and the free variables, reading whichever rows are shorter.
+         */
+        private void reconstructGradient() {
+            if (activeSize == l) {
+                return;
+            }
+            for (int k = activeSize; k < l; k++) {
+                gradient[k] = gradientBar[k] - 1;
+            }
+            int numFree = 0;
+            for (int k = 0; k < activeSize; k++) {
+                if (isFree(k)) {
+                    numFree++;
+                }
+            }
+            if ((long) numFree * l > 2L * activeSize * (l - activeSize)) {
+                for (int k = activeSize; k < l; k++) {
+                    float[] qk = cache.row(k, activeSize);
+                    for (int i = 0; i < activeSize; i++) {
+                        if (isFree(i)) {
+                            gradient[k] += alpha[i] * qk[i];
+                        }
+                    }
+                }
+            } else {
+                for (int i = 0; i < activeSize; i++) {
+                    if (isFree(i)) {
+                        float[] qi = cache.row(i, l);
+                        for (int k = activeSize; k < l; k++) {
+                            gradient[k] += alpha[i] * qi[k];
+                        }
+                    }
+                }
+            }
+        }
+
+        private double computeRho() {
+            double ub = Double.POSITIVE_INFINITY;
+            double lb = Double.NEGATIVE_INFINITY;
+            double sumFree = 0;
+            int numFree = 0;
+            for (int k = 0; k < l; k++) {
+                double yg = y[k] * gradient[k];
+                if (isUpperBound(k)) {
+                    if (y[k] == -1) {
+                        ub = Math.min(ub, yg);
+                    } else {
+                        lb = Math.max(lb, yg);
+                    }
+                } else if (isLowerBound(k)) {
+                    if (y[k] == 1) {
+                        ub = Math.min(ub, yg);
+                    } else {
+                        lb = Math.max(lb, yg);
+                    }
+                } else {
+                    numFree++;
+                    sumFree += yg;
+                }
+            }
+            return numFree > 0 ? sumFree / numFree : (ub + lb) / 2;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    private static void swap(double[] array, int i, int j) {
+        double tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    /**
+     * Least-recently-used cache of Q rows (y_i y_j K(x_i, x_j)) in preallocated
+     * {@code float[]} slots, linked through int arrays so lookups allocate nothing.
+     *
+     * Rows are addressed by solver position and hold only a computed prefix, like
+     * LIBSVM's Cache::get_data(len): a request for a longer prefix computes just the
+     * missing entries. Slots are sized for full rows, so the capacity in rows does not
+     * grow when rows are short.
+     */
+    private static class RowCache {
+        private final FeatureMatrix matrix;
+        private final int[] index;
+        private final byte[] y;
+        private final double gamma;
+        private final int numRows;
+        private final int capacity;
+
+        private final float[][] slots;
+        private final int[] filled;
+        private final int[] slotOfRow;
+        private final int[] rowOfSlot;
+        // Doubly linked list of used slots, most recent at head
+        private final int[] previous;
+        private final int[] next;
+        private int head = -1;
+        private int tail = -1;
+        // Slots released by swap(), reused before evicting
+        private final int[] freeSlots;
+        private int numFree;
+        private int allocated;
+
+        long hits;
+        long misses;
+        long evaluations;
+
+        /**
+         * @param index position to training row, shared with (and permuted by) the solver
+         * @param y     labels by position, shared with the solver
+         */
+        RowCache(FeatureMatrix matrix, int[] index, byte[] y, double gamma, long bytes) {
+            this.matrix = matrix;
+            this.index = index;
+            this.y = y;
+            this.gamma = gamma;
+            this.numRows = matrix.numRows();
+            // At least two rows: the solver holds the rows of both working set variables
+            this.capacity = (int) Math.max(2, Math.min(numRows, bytes / (4L * Math.max(1, numRows))));
+            slots = new float[capacity][];
+            filled = new int[capacity];
+            rowOfSlot = new int[capacity];
+            previous = new int[capacity];
+            next = new int[capacity];
+            freeSlots = new int[capacity];
+            slotOfRow = new int[numRows];
+            Arrays.fill(slotOfRow, -1);
+        }
+
+        /**
+         * @return row {@code i} with at least its first {@code length} entries computed
+         */
+        float[] row(int i, int length) {
+            int slot = slotOfRow[i];
+            if (slot >= 0) {
+                unlink(slot);
+                if (filled[slot] >= length) {
+                    hits++;
+                } else {
+                    misses++;
+                    compute(i, slots[slot], filled[slot], length);
+                    filled[slot] = length;
+                }
+                pushFront(slot);
+                return slots[slot];
+            }
+
+            misses++;
+            if (numFree > 0) {
+                slot = freeSlots[--numFree];
+            } else if (allocated < capacity) {
+                slot = allocated++;
+                slots[slot] = new float[numRows];
+            } else {
+                slot = tail;
+                unlink(slot);
+                slotOfRow[rowOfSlot[slot]] = -1;
+            }
+            compute(i, slots[slot], 0, length);
+            filled[slot] = length;
+            slotOfRow[i] = slot;
+            rowOfSlot[slot] = i;
+            pushFront(slot);
+            return slots[slot];
+        }
+
+        private void compute(int i, float[] out, int from, int to) {
+            double[] data = matrix.data();
+            int numColumns = matrix.numColumns();
+            int offset = matrix.offset(index[i]);
+            int yi = y[i];
+            IntStream.range(from, to).parallel().forEach(k -> {
+                double distance = VectorKernels.squaredDistance(data, offset, data, matrix.offset(index[k]),
+                        numColumns);
+                out[k] = (float) (yi * y[k] * Math.exp(-gamma * distance));
+            });
+            evaluations += to - from;
+        }
+
+        /**
+         * Follow a swap of positions i and j in the solver: swap the rows themselves and
+         * entries i and j inside every cached row, dropping rows that hold only one of them.
+         */
+        void swap(int i, int j) {
+            if (i == j) {
+                return;
+            }
+            int slotI = slotOfRow[i];
+            int slotJ = slotOfRow[j];
+            slotOfRow[i] = slotJ;
+            slotOfRow[j] = slotI;
+            if (slotI >= 0) {
+                rowOfSlot[slotI] = j;
+            }
+            if (slotJ >= 0) {
+                rowOfSlot[slotJ] = i;
+            }
+
+            int low = Math.min(i, j);
+            int high = Math.max(i, j);
+            for (int slot = head; slot >= 0; ) {
+                int following = next[slot];
+                if (filled[slot] > low) {
+                    if (filled[slot] > high) {
+                        float[] row = slots[slot];
+                        float tmp = row[low];
+                        row[low] = row[high];
+                        row[high] = tmp;
+                    } else {
+                        unlink(slot);
+                        slotOfRow[rowOfSlot[slot]] = -1;
+                        filled[slot] = 0;
+                        freeSlots[numFree++] = slot;
+                    }
+                }
+                slot = following;
+            }
+        }
+
+        private void unlink(int slot) {
+            if (previous[slot] >= 0) {
+                next[previous[slot]] = next[slot];
+            } else {
+                head = next[slot];
+            }
+            if (next[slot] >= 0) {
+                previous[next[slot]] = previous[slot];
+            } else {
+                tail = previous[slot];
+            }
+        }
+
+        private void pushFront(int slot) {
+            previous[slot] = -1;
+            next[slot] = head;
+            if (head >= 0) {
+                previous[head] = slot;
+            }
+            head = slot;
+            if (tail < 0) {
+                tail = slot;
+            }
+        }
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public double getCacheHitRate() {
+        long lookups = cacheHits + cacheMisses;
+        return lookups == 0 ? 0 : cacheHits / (double) lookups;
+    }
+
+    /**
+     * @return kernel entries computed during training; shrinking lowers this
+     */
+    public long getKernelEvaluations() {
+        return kernelEvaluations;
+    }
+
+    /**
+     * @return the number of kernel rows the cache could hold
+     */
+    public int getCachedRows() {
+        return cachedRows;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getNumSupportVectors() {
+        return coefficients == null ? 0 : coefficients.length;
+    }
+
+    public double getC() {
+        return c;
+    }
+
+    public void setC(double c) {
+        this.c = c;
+    }
+
+    public double getGamma() {
+        return gamma;
+    }
+
+    public void setGamma(double gamma) {
+        this.gamma = gamma;
+    }
+
+    public int getCacheSizeMB() {
+        return cacheSizeMB;
+    }
+
+    public void setCacheSizeMB(int cacheSizeMB) {
+        this.cacheSizeMB = cacheSizeMB;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public boolean getShrinking() {
+        return shrinking;
+    }
+
+    public void setShrinking(boolean shrinking) {
+        this.shrinking = shrinking;
+    }
+
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String value = Utils.getOption('C', options);
+        setC(value.isEmpty() ? 1.0 : Double.parseDouble(value));
+        value = Utils.getOption('G', options);
+        setGamma(value.isEmpty() ? 0.01 : Double.parseDouble(value));
+        value = Utils.getOption('M', options);
+        setCacheSizeMB(value.isEmpty() ? 200 : Integer.parseInt(value));
+        value = Utils.getOption('E', options);
+        setTolerance(value.isEmpty() ? 1e-3 : Double.parseDouble(value));
+        setShrinking(!Utils.getFlag('N', options));
+        super.setOptions(options);
+    }
+
+    @Override
+    public String[] getOptions() {
+        ArrayList<String> options = new ArrayList<>();
+        options.add("-C");
+        options.add("" + c);
+        options.add("-G");
+        options.add("" + gamma);
+        options.add("-M");
+        options.add("" + cacheSizeMB);
+        options.add("-E");
+        options.add("" + tolerance);
+        if (!shrinking) {
+            options.add("-N");
+        }
+        Collections.addAll(options, super.getOptions());
+        return options.toArray(new String[0]);
+    }
+}
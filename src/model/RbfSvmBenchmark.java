@@ -0,0 +1,87 @@
+package model;
+
+import preprocessing.dataImporter;
+import weka.classifiers.evaluation.Evaluation;
+import weka.core.Instances;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.NominalToBinary;
+import weka.filters.unsupervised.attribute.Normalize;
+import weka.filters.unsupervised.attribute.StringToNominal;
+
+import java.util.Random;
+
+/**
+ * Trains {@link RbfSvm} (gamma 0.01, C 1.0) on a random sample of KDDTrain, preprocessed
+ * like {@link SVMClassifier}, with different kernel cache sizes and with shrinking on
+ * and off. Prints training time, SMO iterations and cache hit rate for each run.
+ *
+ * Usage: model.RbfSvmBenchmark [sample size] [cache sizes in MB, comma separated]
+ */
+public class RbfSvmBenchmark {
+
+    public static void main(String[] args) {
+        int sampleSize = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        String[] cacheSizes = (args.length > 1 ? args[1] : "16,64,256").split(",");
+
+        try {
+            Instances trainDataset = dataImporter.trainSource().getDataSet();
+            Instances testDataset = dataImporter.testSource().getDataSet();
+            if (trainDataset.classIndex() == -1) {
+                trainDataset.setClassIndex(trainDataset.numAttributes() - 1);
+            }
+            if (testDataset.classIndex() == -1) {
+                testDataset.setClassIndex(testDataset.numAttributes() - 1);
+            }
+
+            StringToNominal stringToNominal = new StringToNominal();
+            stringToNominal.setInputFormat(trainDataset);
+            stringToNominal.setOptions(new String[]{"-R", "2-3,4"});
+            trainDataset = Filter.useFilter(trainDataset, stringToNominal);
+            testDataset = Filter.useFilter(testDataset, stringToNominal);
+
+            NominalToBinary nominalToBinary = new NominalToBinary();
+            nominalToBinary.setInputFormat(trainDataset);
+            trainDataset = Filter.useFilter(trainDataset, nominalToBinary);
+            testDataset = Filter.useFilter(testDataset, nominalToBinary);
+
+            Normalize normalize = new Normalize();
+            normalize.setInputFormat(trainDataset);
+            trainDataset = Filter.useFilter(trainDataset, normalize);
+            testDataset = Filter.useFilter(testDataset, normalize);
+
+            trainDataset.randomize(new Random(1));
+            Instances sample = new Instances(trainDataset, 0, Math.min(sampleSize, trainDataset.numInstances()));
+            System.out.println("Training rows: " + sample.numInstances() + ", attributes: " + sample.numAttributes());
+
+            RbfSvm last = null;
+            for (String cacheSize : cacheSizes) {
+                for (boolean shrinking : new boolean[]{true, false}) {
+                    RbfSvm svm = new RbfSvm();
+                    svm.setC(1.0);
+                    svm.setGamma(0.01);
+                    svm.setCacheSizeMB(Integer.parseInt(cacheSize.trim()));
+                    svm.setShrinking(shrinking);
+
+                    long start = System.nanoTime();
+                    svm.buildClassifier(sample);
+                    long millis = (System.nanoTime() - start) / 1_000_000;
+
+                    System.out.printf("Cache %4s MB (%d rows), shrinking %-5s: %6d ms, %d iterations, "
+                                    + "%d hits / %d misses (hit rate %.3f), %d kernel evaluations, %d support vectors%n",
+                            cacheSize.trim(), svm.getCachedRows(), shrinking, millis, svm.getIterations(),
+                            svm.getCacheHits(), svm.getCacheMisses(), svm.getCacheHitRate(),
+                            svm.getKernelEvaluations(), svm.getNumSupportVectors());
+                    last = svm;
+                }
+            }
+
+            Evaluation eval = new Evaluation(sample);
+            eval.evaluateModel(last, testDataset);
+            System.out.println("Correct % on KDDTest+ = " + eval.pctCorrect());
+            System.out.println("AUC = " + eval.areaUnderROC(1));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
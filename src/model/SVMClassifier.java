@@ -1,20 +1,37 @@
 package model;
 
+import preprocessing.InstancesFootprint;
 import preprocessing.dataImporter;
+import weka.classifiers.Classifier;
 import weka.classifiers.evaluation.Evaluation;
 import weka.classifiers.functions.SMO;
 import weka.core.Instances;
+import weka.core.OptionHandler;
 import weka.core.converters.ConverterUtils.DataSource;
 import weka.filters.Filter;
 import weka.filters.supervised.instance.SMOTE;
+import weka.filters.unsupervised.instance.NonSparseToSparse;
 import weka.filters.unsupervised.attribute.Normalize;
 import weka.filters.unsupervised.attribute.StringToNominal;
 import weka.filters.unsupervised.attribute.NominalToBinary;
 
 public class SVMClassifier implements Command {
+    // Continue with SparseInstances after NominalToBinary
+    private boolean sparse = true;
+    // Train the non-linear RBF SVM (RbfSvm) instead of linear SMO
+    private boolean useRbf = false;
+
+    public void setSparse(boolean sparse) {
+        this.sparse = sparse;
+    }
+
+    public void setUseRbf(boolean useRbf) {
+        this.useRbf = useRbf;
+    }
+
     public static void main(String[] args) {
         Command cmd = new SVMClassifier();
-        cmd.exec(dataImporter.trainSource, dataImporter.testSource);
+        cmd.exec(dataImporter.trainSource(), dataImporter.testSource());
     }
 
     @Override
@@ -46,6 +63,15 @@ public class SVMClassifier implements Command {
             trainDataset = Filter.useFilter(trainDataset, nominalToBinary);
             testDataset = Filter.useFilter(testDataset, nominalToBinary);
 
+            if (sparse) {
+                // One-hot columns are mostly zero: continue with sparse rows from here on
+                NonSparseToSparse nonSparseToSparse = new NonSparseToSparse();
+                nonSparseToSparse.setInputFormat(trainDataset);
+                trainDataset = Filter.useFilter(trainDataset, nonSparseToSparse);
+                testDataset = Filter.useFilter(testDataset, nonSparseToSparse);
+                System.out.println(InstancesFootprint.describe("Sparse training set", trainDataset));
+            }
+
             // Normalize numerical attributes
             Normalize normalize = new Normalize();
             normalize.setInputFormat(trainDataset);
@@ -66,23 +92,42 @@ public class SVMClassifier implements Command {
                 SMOTE smote = new SMOTE();
                 smote.setInputFormat(trainDataset);
                 trainDataset = Filter.useFilter(trainDataset, smote);
-            }
 
-            // Create and configure SVM classifier (SMO)
-            SMO svm = new SMO();
-            // Configure parameters
-            svm.setC(1.0); // Complexity parameter
-            svm.setBuildCalibrationModels(true); // Build logistic models
+                if (sparse) {
+                    // SMOTE emits dense synthetic rows, so compress the result again
+                    NonSparseToSparse nonSparseToSparse = new NonSparseToSparse();
+                    nonSparseToSparse.setInputFormat(trainDataset);
+                    trainDataset = Filter.useFilter(trainDataset, nonSparseToSparse);
+                    System.out.println(InstancesFootprint.describe("Sparse training set after SMOTE", trainDataset));
+                }
+            }
 
-            // Use RBF kernel for better handling of non-linear relationships
-            // weka.classifiers.functions.supportVector.RBFKernel rbfKernel = new weka.classifiers.functions.supportVector.RBFKernel();
-            // rbfKernel.setGamma(0.01); // Set gamma parameter
-            // svm.setKernel(rbfKernel);
+            Classifier svm;
+            if (useRbf) {
+                // Use RBF kernel for better handling of non-linear relationships
+                RbfSvm rbfSvm = new RbfSvm();
+                rbfSvm.setC(1.0); // Complexity parameter
+                rbfSvm.setGamma(0.01); // Set gamma parameter
+                svm = rbfSvm;
+            } else {
+                // Create and configure SVM classifier (SMO)
+                SMO smo = new SMO();
+                // Configure parameters
+                smo.setC(1.0); // Complexity parameter
+                smo.setBuildCalibrationModels(true); // Build logistic models
+                smo.setKernel(new VectorizedPolyKernel()); // Linear kernel evaluated with vectorized dot products
+                svm = smo;
+            }
 
             // Build classifier
             System.out.println("Building SVM classifier...");
             svm.buildClassifier(trainDataset);
-            System.out.println("SVM parameters: " + String.join(" ", svm.getOptions()));
+            System.out.println("SVM parameters: " + String.join(" ", ((OptionHandler) svm).getOptions()));
+            if (svm instanceof RbfSvm) {
+                RbfSvm rbfSvm = (RbfSvm) svm;
+                System.out.printf("Iterations: %d, support vectors: %d, kernel cache hit rate: %.3f%n",
+                        rbfSvm.getIterations(), rbfSvm.getNumSupportVectors(), rbfSvm.getCacheHitRate());
+            }
 
             // Evaluate model
             System.out.println("Evaluating SVM classifier...");
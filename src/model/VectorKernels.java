@@ -0,0 +1,60 @@
+package model;
+
+/**
+ * Distance and dot-product kernels over contiguous {@code double[]} rows, as laid out
+ * by {@link preprocessing.FeatureMatrix}.
+ *
+ * The loops are unrolled by four with independent accumulators, which shortens the
+ * dependency chain of the floating-point adds. Whether HotSpot's C2 also emits packed
+ * SIMD instructions for them has not been verified (check with -XX:+PrintAssembly). The
+ * incubating jdk.incubator.vector API would need --add-modules on every javac and java
+ * invocation of this project, so it is not used.
+ */
+public final class VectorKernels {
+
+    private VectorKernels() {
+    }
+
+    /**
+     * Dot product of {@code length} values starting at the given offsets.
+     */
+    public static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        int upper = length & ~3;
+        for (; i < upper; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Squared Euclidean distance of {@code length} values starting at the given offsets.
+     */
+    public static double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        int upper = length & ~3;
+        for (; i < upper; i += 4) {
+            double d0 = a[aOffset + i] - b[bOffset + i];
+            double d1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+            double d2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+            double d3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            double d = a[aOffset + i] - b[bOffset + i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
@@ -0,0 +1,141 @@
+package model;
+
+import preprocessing.FeatureMatrix;
+import weka.classifiers.AbstractClassifier;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Brute-force k-nearest-neighbour classifier with the same semantics as Weka's IBk
+ * defaults (Euclidean distance on range-normalized attributes, no distance weighting,
+ * ties at the k-th distance all vote), but scanning a {@link FeatureMatrix} with
+ * {@link VectorKernels#squaredDistance} instead of going through Instance objects.
+ *
+ * Ranges come from the training data only (IBk also widens them with each test row).
+ * Not thread-safe: the distance buffer is reused between predictions.
+ */
+public class VectorizedIBk extends AbstractClassifier {
+    private static final long serialVersionUID = 1L;
+
+    private int kNN = 1;
+
+    private FeatureMatrix train;
+    private int numClasses;
+    private transient double[] query;
+    private transient double[] distances;
+
+    public int getKNN() {
+        return kNN;
+    }
+
+    public void setKNN(int kNN) {
+        this.kNN = kNN;
+    }
+
+    @Override
+    public void buildClassifier(Instances data) throws Exception {
+        data = new Instances(data);
+        data.deleteWithMissingClass();
+
+        train = FeatureMatrix.normalized(data);
+        numClasses = data.numClasses();
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) throws Exception {
+        int numRows = train.numRows();
+        double[] distribution = new double[numClasses];
+        // IBk starts every class at 1/N so unseen classes never get probability 0
+        Arrays.fill(distribution, 1.0 / Math.max(1, numRows));
+        if (numRows == 0) {
+            return distribution;
+        }
+
+        if (query == null) {
+            query = train.newRow();
+            distances = new double[numRows];
+        }
+        train.encode(instance, query);
+
+        double[] rows = train.data();
+        int numColumns = train.numColumns();
+        for (int r = 0; r < numRows; r++) {
+            distances[r] = VectorKernels.squaredDistance(query, 0, rows, train.offset(r), numColumns);
+        }
+
+        double kthDistance = kthSmallest(distances, Math.min(kNN, numRows));
+        for (int r = 0; r < numRows; r++) {
+            if (distances[r] <= kthDistance) {
+                distribution[(int) train.classValue(r)] += train.weight(r);
+            }
+        }
+
+        Utils.normalize(distribution);
+        return distribution;
+    }
+
+    /**
+     * Value of the k-th smallest entry, found with a bounded max-heap of size k.
+     */
+    private static double kthSmallest(double[] values, int k) {
+        double[] heap = new double[k];
+        int size = 0;
+        for (double value : values) {
+            if (size < k) {
+                heap[size] = value;
+                int i = size++;
+                while (i > 0 && heap[(i - 1) / 2] < heap[i]) {
+                    swap(heap, i, (i - 1) / 2);
+                    i = (i - 1) / 2;
+                }
+            } else if (value < heap[0]) {
+                heap[0] = value;
+                int i = 0;
+                while (true) {
+                    int largest = i;
+                    int left = 2 * i + 1;
+                    int right = left + 1;
+                    if (left < k && heap[left] > heap[largest]) {
+                        largest = left;
+                    }
+                    if (right < k && heap[right] > heap[largest]) {
+                        largest = right;
+                    }
+                    if (largest == i) {
+                        break;
+                    }
+                    swap(heap, i, largest);
+                    i = largest;
+                }
+            }
+        }
+        return heap[0];
+    }
+
+    private static void swap(double[] array, int i, int j) {
+        double tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String k = Utils.getOption('K', options);
+        setKNN(k.isEmpty() ? 1 : Integer.parseInt(k));
+        super.setOptions(options);
+    }
+
+    @Override
+    public String[] getOptions() {
+        ArrayList<String> options = new ArrayList<>();
+        options.add("-K");
+        options.add("" + kNN);
+        Collections.addAll(options, super.getOptions());
+        return options.toArray(new String[0]);
+    }
+}
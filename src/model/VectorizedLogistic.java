@@ -0,0 +1,142 @@
+package model;
+
+import weka.classifiers.functions.Logistic;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.RemoveUseless;
+
+import java.util.Arrays;
+
+/**
+ * Logistic regression that scores with {@link VectorKernels#dot} over a contiguous
+ * weight vector instead of Logistic's per-call filtering and nested coefficient loops.
+ *
+ * The fast path needs all predictors to be numeric, as after the NominalToBinary/Normalize
+ * pipeline in {@link LogisticRegressionClassifier}. RemoveUseless runs here, before
+ * Logistic is trained, so the retained attributes are known without looking inside
+ * Logistic (whose own RemoveUseless then has nothing left to drop). Coefficients are mapped
+ * back to the input attributes by name, and dropped attributes get weight 0, which is
+ * what Logistic does with them. Otherwise (and for rows with missing values) scoring
+ * falls back to Logistic itself, on the row passed through the same filter.
+ */
+public class VectorizedLogistic extends Logistic {
+    private static final long serialVersionUID = 1L;
+
+    private int classIndex;
+    private int numPredictors;
+    // [class][predictor], flattened row-major, one row per non-reference class
+    private double[] weights;
+    private double[] intercepts;
+    private RemoveUseless attFilter;
+
+    private transient double[] features;
+
+    @Override
+    public void buildClassifier(Instances train) throws Exception {
+        attFilter = new RemoveUseless();
+        attFilter.setInputFormat(train);
+        Instances retained = Filter.useFilter(train, attFilter);
+        super.buildClassifier(retained);
+
+        weights = null;
+        intercepts = null;
+        classIndex = train.classIndex();
+        numPredictors = train.numAttributes() - 1;
+
+        for (int a = 0; a < train.numAttributes(); a++) {
+            if (a != classIndex && !train.attribute(a).isNumeric()) {
+                return;
+            }
+        }
+
+        // Row of par for each input predictor, -1 where RemoveUseless dropped the attribute
+        int[] parRow = new int[numPredictors];
+        Arrays.fill(parRow, -1);
+        int row = 1;
+        for (int a = 0; a < retained.numAttributes(); a++) {
+            if (a == retained.classIndex()) {
+                continue;
+            }
+            int index = train.attribute(retained.attribute(a).name()).index();
+            parRow[index < classIndex ? index : index - 1] = row++;
+        }
+
+        double[][] par = coefficients();
+        if (par.length != row) {
+            return;
+        }
+
+        int numModels = par[0].length;
+        weights = new double[numModels * numPredictors];
+        intercepts = new double[numModels];
+        for (int k = 0; k < numModels; k++) {
+            intercepts[k] = par[0][k];
+            for (int p = 0; p < numPredictors; p++) {
+                if (parRow[p] > 0) {
+                    weights[k * numPredictors + p] = par[parRow[p]][k];
+                }
+            }
+        }
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) throws Exception {
+        if (weights == null || instance.hasMissingValue()) {
+            attFilter.input(instance);
+            return super.distributionForInstance(attFilter.output());
+        }
+
+        if (features == null) {
+            features = new double[numPredictors];
+        }
+        int p = 0;
+        for (int a = 0; a <= numPredictors; a++) {
+            if (a != classIndex) {
+                features[p++] = instance.value(a);
+            }
+        }
+
+        int numModels = intercepts.length;
+        double[] v = new double[numModels + 1];
+        for (int k = 0; k < numModels; k++) {
+            v[k] = intercepts[k] + VectorKernels.dot(features, 0, weights, k * numPredictors, numPredictors);
+        }
+        return softmax(v);
+    }
+
+    /**
+     * Turn per-class linear scores into probabilities; the last class is Logistic's
+     * reference class with a score of 0.
+     */
+    static double[] softmax(double[] v) {
+        double max = v[0];
+        for (double value : v) {
+            max = Math.max(max, value);
+        }
+        double sum = 0;
+        double[] distribution = new double[v.length];
+        for (int k = 0; k < v.length; k++) {
+            distribution[k] = Math.exp(v[k] - max);
+            sum += distribution[k];
+        }
+        for (int k = 0; k < v.length; k++) {
+            distribution[k] /= sum;
+        }
+        return distribution;
+    }
+
+    /**
+     * @return the flattened [class][predictor] weights, or null if the fast path is off
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return the per-class intercepts, or null if the fast path is off
+     */
+    public double[] getIntercepts() {
+        return intercepts;
+    }
+}
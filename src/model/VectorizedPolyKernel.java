@@ -0,0 +1,96 @@
+package model;
+
+import preprocessing.FeatureMatrix;
+import preprocessing.SparseRowStore;
+import weka.classifiers.functions.supportVector.PolyKernel;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * PolyKernel whose dot products run over a {@link FeatureMatrix} copy of the training
+ * data with {@link VectorKernels#dot}. SMO hands the kernel its own filtered (binary,
+ * normalized) data, so the raw layout matches what PolyKernel.dotProd would read.
+ *
+ * When the data arrives as SparseInstances (the sparse pipeline after NominalToBinary),
+ * the rows go into a {@link SparseRowStore} instead and dot products merge index lists.
+ *
+ * Since this is still a PolyKernel, SMO keeps its linear-kernel shortcut (sparse
+ * weight vector) at prediction time when the exponent is 1.
+ */
+public class VectorizedPolyKernel extends PolyKernel {
+    private static final long serialVersionUID = 1L;
+
+    private transient FeatureMatrix matrix;
+    private transient SparseRowStore sparse;
+    private transient double[] scratch;
+
+    @Override
+    public void buildKernel(Instances data) throws Exception {
+        super.buildKernel(data);
+        matrix = null;
+        sparse = null;
+        if (data.numInstances() > 0 && data.instance(0) instanceof SparseInstance) {
+            sparse = SparseRowStore.fromInstances(data);
+            scratch = new double[data.numAttributes()];
+        } else {
+            matrix = FeatureMatrix.raw(data);
+            scratch = matrix.newRow();
+        }
+    }
+
+    /**
+     * Drop the copies of the training data along with the base kernel's, so they are not
+     * kept with the trained SMO model.
+     */
+    @Override
+    public void clean() {
+        super.clean();
+        matrix = null;
+        sparse = null;
+        scratch = null;
+    }
+
+    @Override
+    protected double evaluate(int id1, int id2, Instance inst1) throws Exception {
+        double result;
+        if (sparse != null) {
+            result = sparseDot(id1, id2, inst1);
+        } else if (matrix == null) {
+            return super.evaluate(id1, id2, inst1);
+        } else if (id1 >= 0) {
+            double[] rows = matrix.data();
+            result = VectorKernels.dot(rows, matrix.offset(id1), rows, matrix.offset(id2), matrix.numColumns());
+        } else {
+            // id1 == -1 means inst1 is a row that is not part of the training data
+            matrix.encode(inst1, scratch);
+            result = VectorKernels.dot(scratch, 0, matrix.data(), matrix.offset(id2), matrix.numColumns());
+        }
+
+        if (getUseLowerOrder()) {
+            result += 1.0;
+        }
+        if (getExponent() != 1.0) {
+            result = Math.pow(result, getExponent());
+        }
+        return result;
+    }
+
+    private double sparseDot(int id1, int id2, Instance inst1) {
+        if (id1 >= 0) {
+            return sparse.dot(id1, id2);
+        }
+        // Scatter the outside row into a dense buffer, dot it with the stored row, then clear it
+        int classIndex = inst1.classIndex();
+        for (int p = 0; p < inst1.numValues(); p++) {
+            if (inst1.index(p) != classIndex) {
+                scratch[inst1.index(p)] = inst1.valueSparse(p);
+            }
+        }
+        double result = sparse.dot(id2, scratch);
+        for (int p = 0; p < inst1.numValues(); p++) {
+            scratch[inst1.index(p)] = 0;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,180 @@
+package model;
+
+import preprocessing.dataImporter;
+import weka.classifiers.Classifier;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sliding-window learning on a stream of labelled connection records.
+ *
+ * Records are read one at a time (the ARFF files are never loaded whole). The most
+ * recent {@code windowSize} rows live in a fixed ring buffer of primitive rows. Each
+ * record is first scored by the current model and the outcome is fed to a
+ * {@link DriftDetector}; on drift, the window is snapshotted and a new model is trained
+ * on a background thread, then swapped in atomically while scoring goes on with the old
+ * one. Memory is bounded by the ring buffer, one snapshot and two models, and scoring
+ * latency does not depend on how long the stream runs.
+ *
+ * The first {@code windowSize} rows of trainSource seed the initial model; testSource is
+ * the stream.
+ */
+public class WindowedLearner implements Command {
+    private static final int REPORT_EVERY = 5000;
+
+    private final String modelName;
+    private final int windowSize;
+
+    private final AtomicReference<Classifier> model = new AtomicReference<>();
+    private final AtomicBoolean retraining = new AtomicBoolean();
+    private final ExecutorService trainer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "windowed-retrain");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private double[][] window;
+    private int windowStart;
+    private int windowCount;
+    private volatile int numSwaps;
+
+    public WindowedLearner(String modelName, int windowSize) {
+        this.modelName = modelName;
+        this.windowSize = windowSize;
+    }
+
+    public static void main(String[] args) {
+        String modelName = args.length > 0 ? args[0] : "NaiveBayes";
+        int windowSize = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        Command cmd = new WindowedLearner(modelName, windowSize);
+        cmd.exec(dataImporter.trainSource(), dataImporter.testSource());
+    }
+
+    @Override
+    public void exec(DataSource trainSource, DataSource testSource) {
+        try {
+            Instances structure = testSource.getStructure();
+            if (structure.classIndex() == -1) {
+                structure.setClassIndex(structure.numAttributes() - 1);
+            }
+            window = new double[windowSize][structure.numAttributes()];
+
+            // Seed the first model with the head of the training stream
+            Instances seedStructure = trainSource.getStructure();
+            if (seedStructure.classIndex() == -1) {
+                seedStructure.setClassIndex(seedStructure.numAttributes() - 1);
+            }
+            while (windowCount < windowSize && trainSource.hasMoreElements(seedStructure)) {
+                remember(trainSource.nextElement(seedStructure));
+            }
+            model.set(train(snapshot(structure)));
+            System.out.println("Initial " + modelName + " model trained on " + windowCount + " rows");
+
+            DriftDetector detector = new DriftDetector();
+            long rows = 0;
+            long correct = 0;
+            long scoringNanos = 0;
+            int drifts = 0;
+            while (testSource.hasMoreElements(structure)) {
+                Instance record = testSource.nextElement(structure);
+
+                // Test, then train: score with the current model before the label is used
+                long start = System.nanoTime();
+                double predicted = Utils.maxIndex(model.get().distributionForInstance(record));
+                scoringNanos += System.nanoTime() - start;
+
+                boolean error = predicted != record.classValue();
+                rows++;
+                if (!error) {
+                    correct++;
+                }
+                remember(record);
+
+                if (detector.update(error) == DriftDetector.State.DRIFT) {
+                    drifts++;
+                    detector.reset();
+                    if (retraining.compareAndSet(false, true)) {
+                        System.out.println("Drift detected at row " + rows + ", retraining on the last "
+                                + windowCount + " rows");
+                        retrainInBackground(snapshot(structure));
+                    }
+                }
+
+                if (rows % REPORT_EVERY == 0) {
+                    System.out.printf("Rows: %d, accuracy: %.4f, drifts: %d, swaps: %d, mean scoring latency: %.1f us%n",
+                            rows, correct / (double) rows, drifts, numSwaps, scoringNanos / 1000.0 / rows);
+                }
+            }
+
+            trainer.shutdown();
+            trainer.awaitTermination(1, TimeUnit.MINUTES);
+            System.out.println("\nWindowed " + modelName + "\n======\n");
+            System.out.println("Rows scored = " + rows);
+            System.out.println("Correct % = " + 100.0 * correct / Math.max(1, rows));
+            System.out.println("Drifts = " + drifts);
+            System.out.println("Model swaps = " + numSwaps);
+            System.out.printf("Mean scoring latency = %.1f us%n", scoringNanos / 1000.0 / Math.max(1, rows));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Copy a record into the ring buffer, overwriting the oldest row once full.
+     */
+    private void remember(Instance record) {
+        int slot;
+        if (windowCount < windowSize) {
+            slot = (windowStart + windowCount++) % windowSize;
+        } else {
+            slot = windowStart;
+            windowStart = (windowStart + 1) % windowSize;
+        }
+        double[] row = window[slot];
+        for (int a = 0; a < row.length; a++) {
+            row[a] = record.value(a);
+        }
+    }
+
+    /**
+     * Copy the current window into a training set the background thread can own.
+     */
+    private Instances snapshot(Instances structure) {
+        Instances dataset = new Instances(structure, windowCount);
+        for (int i = 0; i < windowCount; i++) {
+            double[] row = window[(windowStart + i) % windowSize];
+            dataset.add(new DenseInstance(1.0, Arrays.copyOf(row, row.length)));
+        }
+        return dataset;
+    }
+
+    private Classifier train(Instances dataset) throws Exception {
+        Classifier classifier = ModelRegistry.newClassifier(modelName);
+        classifier.buildClassifier(dataset);
+        return classifier;
+    }
+
+    private void retrainInBackground(Instances dataset) {
+        trainer.submit(() -> {
+            try {
+                model.set(train(dataset));
+                numSwaps++;
+            } catch (Exception e) {
+                System.out.println("Retraining failed, keeping the current model: " + e.getMessage());
+            } finally {
+                retraining.set(false);
+            }
+        });
+    }
+}
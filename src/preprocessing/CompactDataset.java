@@ -0,0 +1,376 @@
+package preprocessing;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Column store for a dataset that keeps every attribute at the narrowest width that
+ * still holds all of its values exactly.
+ *
+ * Widths are picked while rows are appended, and a column is widened (and re-encoded)
+ * the first time a value does not fit:
+ * <ul>
+ *   <li>BYTE: small integers, i.e. nominal codes (protocol_type, service, flag, class)
+ *   and 0/1 flags (land, logged_in, is_guest_login, ...)</li>
+ *   <li>CENTI: two-decimal values such as the *_rate columns, stored as value * 100 in a
+ *   byte</li>
+ *   <li>SHORT, INT: larger integers (count, srv_count, src_bytes, ...)</li>
+ *   <li>FLOAT: values a float represents exactly; DOUBLE for everything else</li>
+ * </ul>
+ * Every encoding is lossless, so models trained on the {@link #view()} are the same as
+ * on the original Instances. Counting the flyweight object each row of the view needs,
+ * a NSL-KDD row takes roughly 100 bytes instead of the ~390 of a DenseInstance.
+ */
+public class CompactDataset implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CAPACITY = 1024;
+    // Estimated sizes on a 64-bit JVM with compressed references: object header, fields
+    // and alignment, plus the reference held by the Instances list
+    private static final int FLYWEIGHT_BYTES = 40 + 4;
+    private static final int DENSE_INSTANCE_BYTES = 32 + 4;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final Instances header;
+    private final Column[] columns;
+    private double[] weights;
+    private int numRows;
+
+    private CompactDataset(Instances structure) {
+        header = new Instances(structure, 0);
+        columns = new Column[header.numAttributes()];
+        for (int a = 0; a < columns.length; a++) {
+            columns[a] = new Column();
+        }
+    }
+
+    /**
+     * Read a source row by row into a compact store, without materializing the
+     * dense dataset first.
+     *
+     * @param source the DataSource to read
+     * @return the compact dataset (class index defaults to the last attribute)
+     */
+    public static CompactDataset load(DataSource source) throws Exception {
+        source.reset();
+        Instances structure = source.getStructure();
+        if (structure.classIndex() == -1) {
+            structure.setClassIndex(structure.numAttributes() - 1);
+        }
+        CompactDataset dataset = new CompactDataset(structure);
+        while (source.hasMoreElements(structure)) {
+            dataset.add(source.nextElement(structure));
+        }
+        return dataset;
+    }
+
+    /**
+     * Copy an in-memory dataset into a compact store.
+     *
+     * @param instances the Instances object
+     * @return the compact dataset
+     */
+    public static CompactDataset fromInstances(Instances instances) {
+        CompactDataset dataset = new CompactDataset(instances);
+        for (int i = 0; i < instances.numInstances(); i++) {
+            dataset.add(instances.instance(i));
+        }
+        return dataset;
+    }
+
+    private void add(Instance instance) {
+        for (int a = 0; a < columns.length; a++) {
+            columns[a].append(instance.value(a));
+        }
+        if (instance.weight() != 1.0 && weights == null) {
+            weights = new double[Math.max(INITIAL_CAPACITY, numRows + 1)];
+            Arrays.fill(weights, 0, numRows, 1.0);
+        }
+        if (weights != null) {
+            if (numRows == weights.length) {
+                weights = Arrays.copyOf(weights, weights.length * 2);
+            }
+            weights[numRows] = instance.weight();
+        }
+        numRows++;
+    }
+
+    /**
+     * Expose the rows as an Instances object of {@link CompactInstance} flyweights that
+     * read their values from this store.
+     *
+     * @return the Instances view
+     */
+    public Instances view() {
+        Instances view = new Instances(header, numRows);
+        for (int r = 0; r < numRows; r++) {
+            view.add(new CompactInstance(this, r));
+        }
+        return view;
+    }
+
+    public double value(int row, int attribute) {
+        return columns[attribute].get(row);
+    }
+
+    public double weight(int row) {
+        return weights == null ? 1.0 : weights[row];
+    }
+
+    /**
+     * @return a new dense copy of one row
+     */
+    public double[] row(int row) {
+        double[] values = new double[columns.length];
+        for (int a = 0; a < columns.length; a++) {
+            values[a] = columns[a].get(row);
+        }
+        return values;
+    }
+
+    public int numRows() {
+        return numRows;
+    }
+
+    public int numAttributes() {
+        return columns.length;
+    }
+
+    /**
+     * @return bytes used by the column arrays (used part only)
+     */
+    public long memoryBytes() {
+        long bytes = weights == null ? 0 : 8L * numRows;
+        for (Column column : columns) {
+            bytes += (long) column.kind.width * numRows;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return approximate bytes retained by the store plus a {@link #view()} of it: the
+     * column arrays and one {@link CompactInstance} per row (rows that were written to
+     * also hold a private double[], which is not counted)
+     */
+    public long retainedBytes() {
+        return memoryBytes() + (long) numRows * FLYWEIGHT_BYTES;
+    }
+
+    /**
+     * @return approximate bytes of the same rows as DenseInstances (object, weight,
+     * dataset reference and a double[] of values)
+     */
+    public long denseBytes() {
+        return (long) numRows * (DENSE_INSTANCE_BYTES + ARRAY_HEADER_BYTES + 8L * columns.length);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder kinds = new StringBuilder();
+        for (int a = 0; a < columns.length; a++) {
+            kinds.append(a == 0 ? "" : ", ").append(header.attribute(a).name()).append('=').append(columns[a].kind);
+        }
+        return String.format("Compact dataset: %d rows, ~%d KB retained (%d KB columns + %d KB row objects) "
+                        + "vs ~%d KB dense%nColumn widths: %s",
+                numRows, retainedBytes() / 1024, memoryBytes() / 1024, (retainedBytes() - memoryBytes()) / 1024,
+                denseBytes() / 1024, kinds);
+    }
+
+    /**
+     * Storage kinds, narrowest first. Integer kinds reserve their minimum value for missing.
+     */
+    enum Kind {
+        BYTE(1), CENTI(1), SHORT(2), INT(4), FLOAT(4), DOUBLE(8);
+
+        final int width;
+
+        Kind(int width) {
+            this.width = width;
+        }
+
+        boolean fits(double value) {
+            if (Double.isNaN(value)) {
+                return true;
+            }
+            switch (this) {
+                case BYTE:
+                    return value == Math.rint(value) && Math.abs(value) <= Byte.MAX_VALUE;
+                case CENTI:
+                    double scaled = Math.rint(value * 100);
+                    return Math.abs(scaled) <= Byte.MAX_VALUE && scaled / 100 == value;
+                case SHORT:
+                    return value == Math.rint(value) && Math.abs(value) <= Short.MAX_VALUE;
+                case INT:
+                    return value == Math.rint(value) && Math.abs(value) <= Integer.MAX_VALUE;
+                case FLOAT:
+                    return (double) (float) value == value;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * One growable column whose backing array matches its current {@link Kind}.
+     */
+    private static class Column implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        Kind kind = Kind.BYTE;
+        byte[] bytes = new byte[INITIAL_CAPACITY];
+        short[] shorts;
+        int[] ints;
+        float[] floats;
+        double[] doubles;
+        int size;
+
+        double get(int row) {
+            switch (kind) {
+                case BYTE:
+                    return bytes[row] == Byte.MIN_VALUE ? Double.NaN : bytes[row];
+                case CENTI:
+                    return bytes[row] == Byte.MIN_VALUE ? Double.NaN : bytes[row] / 100.0;
+                case SHORT:
+                    return shorts[row] == Short.MIN_VALUE ? Double.NaN : shorts[row];
+                case INT:
+                    return ints[row] == Integer.MIN_VALUE ? Double.NaN : ints[row];
+                case FLOAT:
+                    return floats[row];
+                default:
+                    return doubles[row];
+            }
+        }
+
+        void append(double value) {
+            if (!kind.fits(value)) {
+                widen(value);
+            }
+            if (size == capacity()) {
+                resize(capacity() * 2);
+            }
+            set(size++, value);
+        }
+
+        private void set(int row, double value) {
+            boolean missing = Double.isNaN(value);
+            switch (kind) {
+                case BYTE:
+                    bytes[row] = missing ? Byte.MIN_VALUE : (byte) value;
+                    break;
+                case CENTI:
+                    bytes[row] = missing ? Byte.MIN_VALUE : (byte) Math.rint(value * 100);
+                    break;
+                case SHORT:
+                    shorts[row] = missing ? Short.MIN_VALUE : (short) value;
+                    break;
+                case INT:
+                    ints[row] = missing ? Integer.MIN_VALUE : (int) value;
+                    break;
+                case FLOAT:
+                    floats[row] = (float) value;
+                    break;
+                default:
+                    doubles[row] = value;
+            }
+        }
+
+        /**
+         * Switch to the narrowest kind that holds the stored values and the new one.
+         */
+        private void widen(double value) {
+            double[] old = new double[size];
+            for (int r = 0; r < size; r++) {
+                old[r] = get(r);
+            }
+
+            Kind next = Kind.DOUBLE;
+            for (Kind candidate : Kind.values()) {
+                if (candidate.ordinal() <= kind.ordinal() || !candidate.fits(value)) {
+                    continue;
+                }
+                boolean fitsAll = true;
+                for (double v : old) {
+                    if (!candidate.fits(v)) {
+                        fitsAll = false;
+                        break;
+                    }
+                }
+                if (fitsAll) {
+                    next = candidate;
+                    break;
+                }
+            }
+
+            int capacity = capacity();
+            bytes = null;
+            shorts = null;
+            ints = null;
+            floats = null;
+            doubles = null;
+            kind = next;
+            allocate(capacity);
+            for (int r = 0; r < size; r++) {
+                set(r, old[r]);
+            }
+        }
+
+        private int capacity() {
+            switch (kind) {
+                case BYTE:
+                case CENTI:
+                    return bytes.length;
+                case SHORT:
+                    return shorts.length;
+                case INT:
+                    return ints.length;
+                case FLOAT:
+                    return floats.length;
+                default:
+                    return doubles.length;
+            }
+        }
+
+        private void allocate(int capacity) {
+            switch (kind) {
+                case BYTE:
+                case CENTI:
+                    bytes = new byte[capacity];
+                    break;
+                case SHORT:
+                    shorts = new short[capacity];
+                    break;
+                case INT:
+                    ints = new int[capacity];
+                    break;
+                case FLOAT:
+                    floats = new float[capacity];
+                    break;
+                default:
+                    doubles = new double[capacity];
+            }
+        }
+
+        private void resize(int capacity) {
+            switch (kind) {
+                case BYTE:
+                case CENTI:
+                    bytes = Arrays.copyOf(bytes, capacity);
+                    break;
+                case SHORT:
+                    shorts = Arrays.copyOf(shorts, capacity);
+                    break;
+                case INT:
+                    ints = Arrays.copyOf(ints, capacity);
+                    break;
+                case FLOAT:
+                    floats = Arrays.copyOf(floats, capacity);
+                    break;
+                default:
+                    doubles = Arrays.copyOf(doubles, capacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package preprocessing;
+
+import weka.core.AbstractInstance;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+
+/**
+ * Flyweight row of a {@link CompactDataset}. Values are decoded from the column store on
+ * every read, so the instance itself holds only a reference, a row number and a weight.
+ *
+ * Any modification (setValue, replaceMissingValues, attribute insert/delete, ...) first
+ * copies the row into a private double[] and works on that from then on, so filters and
+ * classifiers that edit instances never touch the shared store. The class extends
+ * AbstractInstance rather than DenseInstance: DenseInstance's copy constructor shares
+ * its value array directly, which a flyweight does not have.
+ */
+public class CompactInstance extends AbstractInstance {
+    private static final long serialVersionUID = 1L;
+
+    private final CompactDataset store;
+    private final int row;
+    // Private copy of the row, created on the first write
+    private double[] values;
+
+    public CompactInstance(CompactDataset store, int row) {
+        this.store = store;
+        this.row = row;
+        this.m_Weight = store.weight(row);
+    }
+
+    private CompactInstance(CompactInstance other) {
+        this.store = other.store;
+        this.row = other.row;
+        this.m_Weight = other.m_Weight;
+        this.m_Dataset = other.m_Dataset;
+    }
+
+    private void materialize() {
+        if (values == null) {
+            values = store.row(row);
+        }
+    }
+
+    /**
+     * @return a DenseInstance with this instance's values, weight and dataset
+     */
+    private DenseInstance toDenseInstance(double[] attValues) {
+        DenseInstance dense = new DenseInstance(m_Weight, attValues);
+        dense.setDataset(m_Dataset);
+        return dense;
+    }
+
+    @Override
+    public double value(int attIndex) {
+        return values != null ? values[attIndex] : store.value(row, attIndex);
+    }
+
+    @Override
+    public double valueSparse(int indexOfIndex) {
+        return value(indexOfIndex);
+    }
+
+    @Override
+    public int index(int position) {
+        return position;
+    }
+
+    @Override
+    public int numAttributes() {
+        return values != null ? values.length : store.numAttributes();
+    }
+
+    @Override
+    public int numValues() {
+        return numAttributes();
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        return values != null ? values.clone() : store.row(row);
+    }
+
+    @Override
+    public Object copy() {
+        if (values != null) {
+            return toDenseInstance(values.clone());
+        }
+        return new CompactInstance(this);
+    }
+
+    @Override
+    public Instance copy(double[] attValues) {
+        return toDenseInstance(attValues);
+    }
+
+    @Override
+    public void setValue(int attIndex, double value) {
+        materialize();
+        values[attIndex] = value;
+    }
+
+    @Override
+    public void setValueSparse(int indexOfIndex, double value) {
+        setValue(indexOfIndex, value);
+    }
+
+    @Override
+    public void replaceMissingValues(double[] array) {
+        materialize();
+        for (int a = 0; a < values.length; a++) {
+            if (Double.isNaN(values[a])) {
+                values[a] = array[a];
+            }
+        }
+    }
+
+    @Override
+    protected void forceDeleteAttributeAt(int position) {
+        materialize();
+        double[] newValues = new double[values.length - 1];
+        System.arraycopy(values, 0, newValues, 0, position);
+        System.arraycopy(values, position + 1, newValues, position, values.length - position - 1);
+        values = newValues;
+    }
+
+    @Override
+    protected void forceInsertAttributeAt(int position) {
+        materialize();
+        double[] newValues = new double[values.length + 1];
+        System.arraycopy(values, 0, newValues, 0, position);
+        newValues[position] = Double.NaN;
+        System.arraycopy(values, position, newValues, position + 1, values.length - position);
+        values = newValues;
+    }
+
+    @Override
+    public Instance mergeInstance(Instance inst) {
+        return toDenseInstance(toDoubleArray()).mergeInstance(inst);
+    }
+
+    @Override
+    public String toStringNoWeight() {
+        return toStringNoWeight(AbstractInstance.s_numericAfterDecimalPoint);
+    }
+
+    @Override
+    public String toStringNoWeight(int afterDecimalPoint) {
+        return toDenseInstance(toDoubleArray()).toStringNoWeight(afterDecimalPoint);
+    }
+
+    public String getRevision() {
+        return "1";
+    }
+}
@@ -0,0 +1,195 @@
+package preprocessing;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Copies the rows of a dataset into one contiguous, row-major {@code double[]}
+ * so distance and dot-product kernels can stream over primitive memory instead
+ * of calling {@link Instance#value(int)} attribute by attribute.
+ *
+ * Two layouts are supported:
+ * <ul>
+ *   <li>{@link #raw(Instances)} copies every non-class attribute as-is (nominal
+ *   attributes keep their value index). This mirrors what Weka's PolyKernel and
+ *   Logistic see after their internal filters.</li>
+ *   <li>{@link #normalized(Instances)} scales numeric attributes to [0, 1] with the
+ *   training ranges and one-hot encodes nominal attributes with a 1/sqrt(2) scale,
+ *   so the squared Euclidean distance between two rows equals the distance used by
+ *   Weka's EuclideanDistance (a nominal mismatch contributes exactly 1).</li>
+ * </ul>
+ * Missing values are encoded as 0; the NSL-KDD files contain none.
+ */
+public class FeatureMatrix implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final double NOMINAL_SCALE = Math.sqrt(0.5);
+
+    private final boolean normalized;
+    private final int classIndex;
+    private final int numColumns;
+    private final int numRows;
+    private final int[] firstColumn;
+    private final double[] min;
+    private final double[] width;
+    private final double[] data;
+    private final double[] classValues;
+    private final double[] weights;
+
+    private FeatureMatrix(Instances dataset, boolean normalized) {
+        this.normalized = normalized;
+        this.classIndex = dataset.classIndex();
+        this.numRows = dataset.numInstances();
+
+        int numAttributes = dataset.numAttributes();
+        firstColumn = new int[numAttributes];
+        min = new double[numAttributes];
+        width = new double[numAttributes];
+
+        int columns = 0;
+        for (int a = 0; a < numAttributes; a++) {
+            firstColumn[a] = columns;
+            if (a == classIndex) {
+                continue;
+            }
+            Attribute attribute = dataset.attribute(a);
+            columns += (normalized && attribute.isNominal()) ? attribute.numValues() : 1;
+        }
+        this.numColumns = columns;
+
+        if (normalized) {
+            computeRanges(dataset);
+        }
+
+        data = new double[numRows * numColumns];
+        classValues = new double[numRows];
+        weights = new double[numRows];
+        for (int r = 0; r < numRows; r++) {
+            Instance instance = dataset.instance(r);
+            encode(instance, data, r * numColumns);
+            classValues[r] = classIndex >= 0 ? instance.classValue() : 0;
+            weights[r] = instance.weight();
+        }
+    }
+
+    /**
+     * Copy the dataset as-is, one column per non-class attribute.
+     *
+     * @param dataset the Instances object
+     * @return the row-major matrix
+     */
+    public static FeatureMatrix raw(Instances dataset) {
+        return new FeatureMatrix(dataset, false);
+    }
+
+    /**
+     * Copy the dataset with range-normalized numeric columns and scaled one-hot
+     * nominal columns, ready for Euclidean nearest-neighbour search.
+     *
+     * @param dataset the Instances object
+     * @return the row-major matrix
+     */
+    public static FeatureMatrix normalized(Instances dataset) {
+        return new FeatureMatrix(dataset, true);
+    }
+
+    private void computeRanges(Instances dataset) {
+        int numAttributes = dataset.numAttributes();
+        double[] max = new double[numAttributes];
+        Arrays.fill(min, Double.NaN);
+        Arrays.fill(max, Double.NaN);
+        for (int r = 0; r < dataset.numInstances(); r++) {
+            Instance instance = dataset.instance(r);
+            for (int a = 0; a < numAttributes; a++) {
+                if (a == classIndex || instance.isMissing(a)) {
+                    continue;
+                }
+                double value = instance.value(a);
+                if (Double.isNaN(min[a]) || value < min[a]) {
+                    min[a] = value;
+                }
+                if (Double.isNaN(max[a]) || value > max[a]) {
+                    max[a] = value;
+                }
+            }
+        }
+        for (int a = 0; a < numAttributes; a++) {
+            width[a] = Double.isNaN(min[a]) ? 0 : max[a] - min[a];
+        }
+    }
+
+    /**
+     * Encode a single instance with this matrix's layout, e.g. a test row that is
+     * compared against the stored training rows. Nothing is allocated.
+     *
+     * @param instance the instance to encode (same header as the source dataset)
+     * @param out      destination buffer of at least {@link #numColumns()} values
+     */
+    public void encode(Instance instance, double[] out) {
+        encode(instance, out, 0);
+    }
+
+    private void encode(Instance instance, double[] out, int offset) {
+        int numAttributes = firstColumn.length;
+        if (normalized) {
+            Arrays.fill(out, offset, offset + numColumns, 0);
+        }
+        for (int a = 0; a < numAttributes; a++) {
+            if (a == classIndex) {
+                continue;
+            }
+            int column = offset + firstColumn[a];
+            if (instance.isMissing(a)) {
+                out[column] = 0;
+                continue;
+            }
+            double value = instance.value(a);
+            if (!normalized) {
+                out[column] = value;
+            } else if (instance.attribute(a).isNominal()) {
+                out[column + (int) value] = NOMINAL_SCALE;
+            } else if (width[a] > 0) {
+                out[column] = (value - min[a]) / width[a];
+            } else {
+                out[column] = 0;
+            }
+        }
+    }
+
+    /**
+     * @return a scratch buffer sized for {@link #encode(Instance, double[])}
+     */
+    public double[] newRow() {
+        return new double[numColumns];
+    }
+
+    /**
+     * @return the backing row-major array; row {@code r} starts at {@link #offset(int)}
+     */
+    public double[] data() {
+        return data;
+    }
+
+    public int offset(int row) {
+        return row * numColumns;
+    }
+
+    public int numRows() {
+        return numRows;
+    }
+
+    public int numColumns() {
+        return numColumns;
+    }
+
+    public double classValue(int row) {
+        return classValues[row];
+    }
+
+    public double weight(int row) {
+        return weights[row];
+    }
+}
@@ -0,0 +1,73 @@
+package preprocessing;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Re-expresses rows in another header by attribute and value name.
+ *
+ * The NSL-KDD files do not share one header: KDDValid orders the protocol_type, service
+ * and flag values differently, lists fewer services, and declares land, logged_in,
+ * is_host_login and is_guest_login as numeric where KDDTrain/KDDTest+ use {'0','1'}.
+ * A model trained on one header reads the other's value indices as different values, so
+ * rows have to be mapped before they are scored. Nominal values are matched by label,
+ * numeric values are matched to a nominal label by their printed form (1.0 -> "1") and
+ * nominal labels are parsed as numbers. Values the target header does not know become
+ * missing.
+ */
+public final class HeaderMapper {
+
+    private HeaderMapper() {
+    }
+
+    /**
+     * @param data   the rows to map
+     * @param header the target header; every one of its attributes must exist in data
+     * @return the rows of data in the target header, with their weights
+     * @throws IllegalArgumentException if an attribute of header is missing from data
+     */
+    public static Instances map(Instances data, Instances header) {
+        int numAttributes = header.numAttributes();
+        Attribute[] sources = new Attribute[numAttributes];
+        for (int a = 0; a < numAttributes; a++) {
+            sources[a] = data.attribute(header.attribute(a).name());
+            if (sources[a] == null) {
+                throw new IllegalArgumentException("Attribute " + header.attribute(a).name()
+                        + " is missing from " + data.relationName());
+            }
+        }
+
+        Instances mapped = new Instances(header, data.numInstances());
+        for (int i = 0; i < data.numInstances(); i++) {
+            Instance row = data.instance(i);
+            double[] values = new double[numAttributes];
+            for (int a = 0; a < numAttributes; a++) {
+                values[a] = mapValue(row.value(sources[a]), sources[a], header.attribute(a));
+            }
+            mapped.add(new DenseInstance(row.weight(), values));
+        }
+        return mapped;
+    }
+
+    private static double mapValue(double value, Attribute source, Attribute target) {
+        if (Utils.isMissingValue(value)) {
+            return value;
+        }
+        if (target.isNominal() || target.isString()) {
+            String label = source.isNumeric() ? Utils.doubleToString(value, 6) : source.value((int) value);
+            int index = target.indexOfValue(label);
+            return index >= 0 ? index : Utils.missingValue();
+        }
+        if (source.isNumeric()) {
+            return value;
+        }
+        try {
+            return Double.parseDouble(source.value((int) value));
+        } catch (NumberFormatException e) {
+            return Utils.missingValue();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package preprocessing;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Collapses identical rows into a single weighted instance.
+ *
+ * Rows are hashed over all attribute values (class included, so conflicting labels stay
+ * apart) into a primitive open-addressing table; each group of duplicates becomes its
+ * first occurrence with a weight equal to the summed weights of the group.
+ *
+ * NaiveBayes and Logistic only use weighted counts and weighted likelihoods, so they
+ * learn the same model from the compacted set as from the original one. The tree
+ * learners do not:
+ * <ul>
+ *   <li>J48's C45ModelSelection checks the minimum-instances threshold against the
+ *   unweighted row count, so splits and tree size change (on KDDValid, 429 leaves
+ *   from the full set, 499 after deduplication).</li>
+ *   <li>RandomForest bootstraps over rows, so each bag draws from the unique rows
+ *   and is correspondingly smaller; accuracy moves slightly (on a 20k split, 99.769%
+ *   from the full set, 99.750% after deduplication).</li>
+ * </ul>
+ * Only NaiveBayesClassifier and LogisticRegressionClassifier deduplicate their training
+ * data; J48Classifier and RandomForestClassifier train on the full set.
+ */
+public class InstanceDeduplicator {
+
+    /**
+     * Return a copy of the dataset with duplicate rows merged into weighted instances.
+     * The order of first occurrences is preserved.
+     *
+     * @param dataset the Instances object
+     * @return the compacted Instances object
+     */
+    public static Instances deduplicate(Instances dataset) {
+        int numRows = dataset.numInstances();
+        int numAttributes = dataset.numAttributes();
+
+        int capacity = Integer.highestOneBit(Math.max(2, numRows) * 2 - 1) << 1;
+        int mask = capacity - 1;
+        // slot -> 1 + index into groupRows, 0 means empty
+        int[] slots = new int[capacity];
+        long[] slotHashes = new long[capacity];
+
+        int[] groupRows = new int[numRows];
+        double[] groupWeights = new double[numRows];
+        int numGroups = 0;
+
+        for (int r = 0; r < numRows; r++) {
+            Instance instance = dataset.instance(r);
+            long hash = hash(instance, numAttributes);
+            int slot = (int) hash & mask;
+            while (true) {
+                int group = slots[slot] - 1;
+                if (group < 0) {
+                    slots[slot] = numGroups + 1;
+                    slotHashes[slot] = hash;
+                    groupRows[numGroups] = r;
+                    groupWeights[numGroups] = instance.weight();
+                    numGroups++;
+                    break;
+                }
+                if (slotHashes[slot] == hash
+                        && sameValues(instance, dataset.instance(groupRows[group]), numAttributes)) {
+                    groupWeights[group] += instance.weight();
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        Instances compacted = new Instances(dataset, numGroups);
+        for (int g = 0; g < numGroups; g++) {
+            Instance representative = (Instance) dataset.instance(groupRows[g]).copy();
+            representative.setWeight(groupWeights[g]);
+            compacted.add(representative);
+        }
+        return compacted;
+    }
+
+    private static long hash(Instance instance, int numAttributes) {
+        long hash = 0x9E3779B97F4A7C15L;
+        for (int a = 0; a < numAttributes; a++) {
+            hash = (hash ^ Double.doubleToLongBits(instance.value(a))) * 0xBF58476D1CE4E5B9L;
+        }
+        // final avalanche (MurmurHash3 fmix64) so the low bits used for the slot are well mixed
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static boolean sameValues(Instance first, Instance second, int numAttributes) {
+        for (int a = 0; a < numAttributes; a++) {
+            if (Double.doubleToLongBits(first.value(a)) != Double.doubleToLongBits(second.value(a))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
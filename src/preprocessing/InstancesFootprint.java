@@ -0,0 +1,57 @@
+package preprocessing;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * Estimates how much heap the rows of an Instances object retain, for the dense or
+ * sparse representation they actually use. Sizes assume a 64-bit JVM with compressed
+ * references: object header, fields and alignment, value arrays, and the reference held
+ * by the Instances list.
+ */
+public final class InstancesFootprint {
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int DENSE_INSTANCE_BYTES = 32 + 4;
+    private static final int SPARSE_INSTANCE_BYTES = 40 + 4;
+
+    private InstancesFootprint() {
+    }
+
+    /**
+     * @return approximate bytes retained by the rows as they are stored
+     */
+    public static long bytes(Instances dataset) {
+        long bytes = 0;
+        for (int i = 0; i < dataset.numInstances(); i++) {
+            Instance instance = dataset.instance(i);
+            if (instance instanceof SparseInstance) {
+                // double[] of values plus int[] of indices
+                bytes += SPARSE_INSTANCE_BYTES + 2 * ARRAY_HEADER_BYTES + 12L * instance.numValues();
+            } else {
+                bytes += DENSE_INSTANCE_BYTES + ARRAY_HEADER_BYTES + 8L * instance.numValues();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return approximate bytes the same rows would retain as DenseInstances
+     */
+    public static long denseBytes(Instances dataset) {
+        return (long) dataset.numInstances()
+                * (DENSE_INSTANCE_BYTES + ARRAY_HEADER_BYTES + 8L * dataset.numAttributes());
+    }
+
+    /**
+     * @return a one-line summary of the stored size against the dense size
+     */
+    public static String describe(String name, Instances dataset) {
+        long values = 0;
+        for (int i = 0; i < dataset.numInstances(); i++) {
+            values += dataset.instance(i).numValues();
+        }
+        return String.format("%s: %d rows, %d stored values, ~%d KB vs ~%d KB dense",
+                name, dataset.numInstances(), values, bytes(dataset) / 1024, denseBytes(dataset) / 1024);
+    }
+}
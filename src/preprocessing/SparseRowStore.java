@@ -0,0 +1,94 @@
+package preprocessing;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Compressed sparse row (CSR) copy of a dataset: for each row only the non-zero
+ * non-class values are kept, as (attribute index, value) pairs in three flat arrays.
+ *
+ * After NominalToBinary the one-hot columns for service, flag and protocol_type make
+ * most cells zero, so this is several times smaller than a dense {@code double[]} per
+ * row. {@link model.VectorizedPolyKernel} keeps SMO's training rows in this form and
+ * computes its dot products on it.
+ */
+public class SparseRowStore {
+    private final int[] rowStart;
+    private final int[] columns;
+    private final double[] values;
+
+    private SparseRowStore(Instances dataset) {
+        int numRows = dataset.numInstances();
+        int classIndex = dataset.classIndex();
+
+        int nonZero = 0;
+        for (int r = 0; r < numRows; r++) {
+            Instance instance = dataset.instance(r);
+            for (int p = 0; p < instance.numValues(); p++) {
+                if (instance.index(p) != classIndex && instance.valueSparse(p) != 0) {
+                    nonZero++;
+                }
+            }
+        }
+
+        rowStart = new int[numRows + 1];
+        columns = new int[nonZero];
+        values = new double[nonZero];
+        int k = 0;
+        for (int r = 0; r < numRows; r++) {
+            Instance instance = dataset.instance(r);
+            rowStart[r] = k;
+            for (int p = 0; p < instance.numValues(); p++) {
+                int index = instance.index(p);
+                double value = instance.valueSparse(p);
+                if (index != classIndex && value != 0) {
+                    columns[k] = index;
+                    values[k++] = value;
+                }
+            }
+        }
+        rowStart[numRows] = k;
+    }
+
+    /**
+     * Copy a dataset (dense or sparse) into CSR form.
+     *
+     * @param dataset the Instances object
+     * @return the sparse store
+     */
+    public static SparseRowStore fromInstances(Instances dataset) {
+        return new SparseRowStore(dataset);
+    }
+
+    /**
+     * Dot product of two stored rows (class excluded), merging their sorted index lists.
+     */
+    public double dot(int first, int second) {
+        int i = rowStart[first];
+        int iEnd = rowStart[first + 1];
+        int j = rowStart[second];
+        int jEnd = rowStart[second + 1];
+        double sum = 0;
+        while (i < iEnd && j < jEnd) {
+            if (columns[i] == columns[j]) {
+                sum += values[i++] * values[j++];
+            } else if (columns[i] < columns[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Dot product of a stored row with a dense vector indexed by attribute.
+     */
+    public double dot(int row, double[] dense) {
+        double sum = 0;
+        for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+            sum += values[k] * dense[columns[k]];
+        }
+        return sum;
+    }
+}
@@ -2,16 +2,39 @@ package preprocessing;
 
 import weka.core.converters.ConverterUtils.DataSource;
 
+/**
+ * The NSL-KDD ARFF sources. Each one is opened on first use, so a job that needs only
+ * one of them (e.g. scoring KDDTest+ with a saved model) does not open the others.
+ */
 public class dataImporter {
-    public static DataSource trainSource;
-    public static DataSource testSource;
-    public static DataSource validSource;
+    private static DataSource trainSource;
+    private static DataSource testSource;
+    private static DataSource validSource;
 
-    static {
+    public static synchronized DataSource trainSource() {
+        if (trainSource == null) {
+            trainSource = open("data/KDDTrain.arff");
+        }
+        return trainSource;
+    }
+
+    public static synchronized DataSource testSource() {
+        if (testSource == null) {
+            testSource = open("data/KDDTest+.arff");
+        }
+        return testSource;
+    }
+
+    public static synchronized DataSource validSource() {
+        if (validSource == null) {
+            validSource = open("data/KDDValid.arff");
+        }
+        return validSource;
+    }
+
+    private static DataSource open(String path) {
         try {
-            trainSource = new DataSource("data/KDDTrain.arff");
-            testSource = new DataSource("data/KDDTest+.arff");
-            validSource = new DataSource("data/KDDValid.arff");
+            return new DataSource(path);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }